@@ -19,12 +19,13 @@ public final class SpiritNetworkingClient {
             client.execute(() -> {
                 // add
                 payload.add().forEach(a -> {
-                    ClientSpiritCache.VEC.put(a.id(), Vec384f.fromBits(a.bits()));
+                    ClientSpiritCache.VEC.put(a.id(), Vec384f.fromBits(a.bits()).freeze());
                     ClientSpiritCache.VISIBLE.add(a.id());
 //                    LOGGER.info("Length of {}: {}", a.id(), Vec384f.fromBits(a.bits()).length());
                 });
                 // remove
                 payload.remove().forEach(ClientSpiritCache.VISIBLE::remove);
+                ClientSpiritCache.markVisibleDirty();
             });
         });
     }
@@ -29,6 +29,10 @@ public final class ClientLatentPredictor {
     private static final float BASIS_ROTATION_PER_BLOCK = 0.05f;
 
     private static Vec3d lastPos; // world movement bookkeeping
+    /** Live basis instance stepped last tick; a different one means the server replaced it. */
+    private static Basis384f lastLiveBasis;
+    /** 3×4 update applied by the last basis step, replayed by ClientSpiritCache.PROJECTOR. */
+    private static final float[] ROTATION = new float[12];
 
     public static void init() {
         ClientTickEvents.END_CLIENT_TICK.register(ClientLatentPredictor::onEndTick);
@@ -55,16 +59,25 @@ public final class ClientLatentPredictor {
         Vec384f    att  = mc.player.getComponent(MysticismEntityComponents.LATENT_ATTUNEMENT).get();
 
         // Perform mutation on the live components
-        BasisIntegrator384f.step(basis, att, dx, dy, dz, BASIS_ROTATION_PER_BLOCK);
+        final Basis384f shown = ClientSpiritCache.playerLatentBasis;
+        final boolean sameLive = basis == lastLiveBasis;
+        lastLiveBasis = basis;
+        boolean rotated = BasisIntegrator384f.step(basis, att, dx, dy, dz, BASIS_ROTATION_PER_BLOCK, ROTATION);
         float f = (float)(POS_LERP_PER_BLOCK * dist);
         if (f > 0f) pos.converge(att, f);
 
-        // --- THE SOLUTION ---
-        // Mirror IMMUTABLE SNAPSHOTS into your client cache for the renderer.
-        // The .clone() method creates a new object with a copy of the data at this exact moment.
-        // The renderer will now have a stable, thread-safe copy to work with for the entire frame.
-        ClientSpiritCache.playerLatentBasis = basis.clone();
-        ClientSpiritCache.playerLatentPos   = pos.clone();
-        ClientSpiritCache.playerLatentAttunement = att.clone();
+        // Mirror FROZEN SNAPSHOTS into the client cache for the renderer.
+        // One copy per tick here means the renderer can read them every frame without cloning.
+        ClientSpiritCache.playerLatentBasis = basis.frozenCopy();
+        ClientSpiritCache.playerLatentPos   = pos.frozenCopy();
+        ClientSpiritCache.playerLatentAttunement = att.frozenCopy();
+
+        // Carry the projected glyph coordinates across the step instead of reprojecting them.
+        // Only valid if `shown` was taken from this same live basis on the previous tick.
+        if (sameLive) {
+            ClientSpiritCache.PROJECTOR.rotate(shown, rotated ? ROTATION : null, att, ClientSpiritCache.playerLatentBasis);
+        } else {
+            ClientSpiritCache.PROJECTOR.invalidate();
+        }
     }
 }
@@ -2,6 +2,7 @@ package io.github.mysticism.client.spiritworld;
 
 import io.github.mysticism.component.MysticismEntityComponents;
 import io.github.mysticism.vector.BasisIntegrator384f;
+import io.github.mysticism.vector.IncrementalProjector;
 import io.github.mysticism.vector.Vec384f;
 import io.github.mysticism.vector.Basis384f;
 import net.fabricmc.api.EnvType;
@@ -10,6 +11,7 @@ import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.Vec3d;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -22,6 +24,14 @@ public final class ClientSpiritCache {
     /** Subset currently marked visible by the server. */
     public static final HashSet<String> VISIBLE = new HashSet<>();
 
+    /** VISIBLE packed as a row-major matrix (384 floats per id) for batched projection; see {@link #visibleRows()}. */
+    private static String[] visibleIds = new String[0];
+    private static float[] visibleRows = new float[0];
+    private static boolean visibleDirty = true;
+
+    /** Projected coordinates of visibleRows() under playerLatentBasis, carried across basis steps. */
+    public static final IncrementalProjector PROJECTOR = new IncrementalProjector();
+
 
     /** Target basis we’re easing toward (when attunement changes). */
     public static Basis384f target = new Basis384f();
@@ -35,4 +45,36 @@ public final class ClientSpiritCache {
     private static Vec3d lastPos = null;
 
     private ClientSpiritCache() {}
+
+    /** Call after changing VISIBLE or VEC so the packed matrix gets rebuilt on next use. */
+    public static void markVisibleDirty() {
+        visibleDirty = true;
+    }
+
+    /** Ids of the rows in {@link #visibleRows()}, in row order. */
+    public static String[] visibleIds() {
+        if (visibleDirty) packVisible();
+        return visibleIds;
+    }
+
+    /** Contiguous vectors of every visible id that has an embedding; row r belongs to visibleIds()[r]. */
+    public static float[] visibleRows() {
+        if (visibleDirty) packVisible();
+        return visibleRows;
+    }
+
+    private static void packVisible() {
+        String[] ids = new String[VISIBLE.size()];
+        float[] rows = new float[ids.length * Vec384f.DIM];
+        int n = 0;
+        for (String id : VISIBLE) {
+            Vec384f v = VEC.get(id);
+            if (v == null) continue;
+            v.copyInto(rows, n * Vec384f.DIM);
+            ids[n++] = id;
+        }
+        visibleIds = n == ids.length ? ids : Arrays.copyOf(ids, n);
+        visibleRows = rows;
+        visibleDirty = false;
+    }
 }
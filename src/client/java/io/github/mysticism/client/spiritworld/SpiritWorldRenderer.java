@@ -1,8 +1,9 @@
 package io.github.mysticism.client.spiritworld;
 
 import io.github.mysticism.vector.Basis384f;
-import io.github.mysticism.vector.Projection384f;
+import io.github.mysticism.vector.IncrementalProjector;
 import io.github.mysticism.vector.Vec384f;
+import io.github.mysticism.vector.VecKernels;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
@@ -25,6 +26,18 @@ import net.minecraft.util.math.Vec3d;
 public final class SpiritWorldRenderer {
     private SpiritWorldRenderer() {}
 
+    /** Projected offsets from the camera, 3 floats per visible glyph; reused across frames. */
+    private static float[] xyz = new float[0];
+
+    /**
+     * Glyph scale (1/|obj - you|) per visible row. Both inputs only change per tick: the predictor
+     * publishes a new frozen position each step and visibleRows() repacks into a new array, so
+     * the 384-d distances are recomputed when either reference changes, not every frame.
+     */
+    private static float[] scales = new float[0];
+    private static Vec384f scaledFor = null;
+    private static float[] scaledRows = null;
+
     public static void init() {
         WorldRenderEvents.AFTER_ENTITIES.register(SpiritWorldRenderer::render);
     }
@@ -45,17 +58,22 @@ public final class SpiritWorldRenderer {
 
         final ItemRenderer itemRenderer = mc.getItemRenderer();
 
-        // Iterate the server-selected visible ids
-        for (String id : ClientSpiritCache.VISIBLE) {
-            final Vec384f obj = ClientSpiritCache.VEC.get(id);
-            if (obj == null) continue;
-
-            // --- THE DEFINITIVE FIX: Use defensive cloning ---
-            // This prevents the mutable math in your other classes from corrupting
-            // the cached data and causing all items to render at the same spot.
-            final Vec3d worldPos = Projection384f.projectToWorld(
-                    obj.clone(), you.clone(), basis.clone(),
-                    camera.getPos(), 30.0f);
+        // Project every server-selected visible id in one batched pass.
+        // you and basis are frozen snapshots (see ClientLatentPredictor), so no clones needed.
+        // The projector carries coordinates across basis steps; it only reprojects the whole
+        // matrix when the visible set or the basis was replaced, or its drift bound ran out.
+        final String[] ids = ClientSpiritCache.visibleIds();
+        final float[] objs = ClientSpiritCache.visibleRows();
+        final int n = ids.length;
+        final IncrementalProjector projector = ClientSpiritCache.PROJECTOR;
+        if (!projector.isTracking(objs, basis)) projector.reset(objs, n, basis);
+        xyz = projector.project(you, 30.0f, xyz);
+        final Vec3d cam = camera.getPos();
+        if (you != scaledFor || objs != scaledRows) updateScales(objs, n, you);
+
+        for (int r = 0; r < n; r++) {
+            final String id = ids[r];
+            final Vec3d worldPos = cam.add(xyz[3 * r], xyz[3 * r + 1], xyz[3 * r + 2]);
 
             // Frustum culling
             if (ctx.frustum() == null || !ctx.frustum().isVisible(Box.of(worldPos, 1, 1, 1))) {
@@ -65,15 +83,10 @@ public final class SpiritWorldRenderer {
             matrices.push();
 
             // Translate matrix to the object's world position, relative to the camera
-            Vec3d cam = camera.getPos();
-            matrices.translate(worldPos.x - cam.x, worldPos.y - cam.y, worldPos.z - cam.z);
+            matrices.translate(xyz[3 * r], xyz[3 * r + 1], xyz[3 * r + 2]);
 
-            // Calculate scale based on distance
-            double sqDist = obj.squareDistance(you);
-            float scale = (float) (1.0 / Math.sqrt(sqDist));
-            if (!Float.isFinite(scale)) { // Sanity check for division by zero or negative sqrt
-                scale = 1.0f;
-            }
+            // Scale based on latent distance (cached per tick, see updateScales)
+            final float scale = scales[r];
             matrices.scale(scale, scale, scale);
 
             ItemStack stack = resolveIcon(id);
@@ -105,6 +118,22 @@ public final class SpiritWorldRenderer {
         }
     }
 
+    /** Recomputes {@link #scales} for <code>n</code> rows of <code>objs</code> around <code>you</code>. */
+    private static void updateScales(float[] objs, int n, Vec384f you) {
+        if (scales.length < n) scales = new float[n];
+        final float[] youRow = you.data();
+        for (int r = 0; r < n; r++) {
+            double sqDist = VecKernels.squareDistance(objs, r * Vec384f.DIM, youRow, 0, Vec384f.DIM);
+            float scale = (float) (1.0 / Math.sqrt(sqDist));
+            if (!Float.isFinite(scale)) { // Sanity check for division by zero or negative sqrt
+                scale = 1.0f;
+            }
+            scales[r] = scale;
+        }
+        scaledFor = you;
+        scaledRows = objs;
+    }
+
     /**
      * Best-effort: if the id is a valid registry id for an item, use it; otherwise use a default glyph.
      */
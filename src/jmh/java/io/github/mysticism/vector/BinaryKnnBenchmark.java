@@ -0,0 +1,89 @@
+package io.github.mysticism.vector;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign-bit sketch prefilter vs. exact fp32 scan, swept over shortlist sizes.
+ * <p>
+ * JMH reports the latency; recall@k against the exact index for each shortlist factor is printed
+ * at trial teardown, so one run shows the smallest factor that holds recall at 0.99.
+ * Data is clustered (like real embeddings) rather than isotropic noise. k=1643 is what
+ * SpiritVisibilityService asks the item index for, with the EUCLIDEAN metric.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinaryKnnBenchmark {
+    @Param({"1344", "20000"})
+    public int n;
+
+    @Param({"64", "1643"})
+    public int k;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int shortlistFactor;
+
+    private KnnIndex exact;
+    private KnnIndex binary;
+    private List<Vec384f> queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random(7);
+        float[][] centers = new float[64][Vec384f.DIM];
+        for (float[] c : centers) for (int d = 0; d < Vec384f.DIM; d++) c[d] = (float) r.nextGaussian() * 0.05f;
+
+        exact = new SimpleKnnIndex();
+        binary = new BinaryKnnIndex(shortlistFactor, 0);
+        queries = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            float[] c = centers[r.nextInt(centers.length)];
+            float[] x = new float[Vec384f.DIM];
+            for (int d = 0; d < Vec384f.DIM; d++) x[d] = c[d] + (float) r.nextGaussian() * 0.03f;
+            Vec384f v = new Vec384f(x);
+            exact.upsert("v" + i, v);
+            binary.upsert("v" + i, v);
+            if (queries.size() < 100 && i % 7 == 0) queries.add(v);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reportRecall() {
+        for (Metric metric : Metric.values()) {
+            float recall = KnnRecall.recallAtK(exact, binary, queries, k, metric);
+            System.out.printf("%nn=%d k=%d shortlistFactor=%d %s recall@k=%.4f%n", n, k, shortlistFactor, metric, recall);
+        }
+    }
+
+    private Vec384f nextQuery() {
+        Vec384f q = queries.get(next);
+        next = (next + 1) % queries.size();
+        return q;
+    }
+
+    @Benchmark
+    public Object exactCosine() {
+        return exact.kNN(k, nextQuery(), Metric.COSINE);
+    }
+
+    @Benchmark
+    public Object binaryCosine() {
+        return binary.kNN(k, nextQuery(), Metric.COSINE);
+    }
+
+    @Benchmark
+    public Object exactEuclidean() {
+        return exact.kNN(k, nextQuery(), Metric.EUCLIDEAN);
+    }
+
+    @Benchmark
+    public Object binaryEuclidean() {
+        return binary.kNN(k, nextQuery(), Metric.EUCLIDEAN);
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.mysticism.vector;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs. SIMD kernels on the shapes we actually run: single 384-d ops and a full
+ * item-index-sized scan (one query against every stored vector).
+ * <p>
+ * Run with <code>./gradlew jmh</code>; the incubator module is added by the jmh block in build.gradle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VecKernelsBenchmark {
+    private static final int DIM = Vec384f.DIM;
+
+    /** Roughly the size of the vanilla item registry. */
+    @Param({"1344"})
+    public int n;
+
+    private float[][] rows;
+    private float[] query;
+    private float[] xyz;
+    /** rows packed row-major, and 3 floats of output per row, for the batched projection. */
+    private float[] packed;
+    private float[] xyzAll;
+    /** 16 packed queries (a busy spirit world) and one 64-row block of their dot products. */
+    private static final int QUERIES = 16;
+    private float[] queries;
+    private float[] dots;
+    /** rows as fp16 and bf16 bits (a {@link HalfKnnIndex} scan), plus the decode scratch row the fused kernels replaced. */
+    private short[][] fp16;
+    private short[][] bf16;
+    private float[] scratch;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        rows = new float[n][DIM];
+        for (float[] row : rows) for (int d = 0; d < DIM; d++) row[d] = r.nextFloat() - 0.5f;
+        query = new float[DIM];
+        for (int d = 0; d < DIM; d++) query[d] = r.nextFloat() - 0.5f;
+        xyz = new float[3];
+        packed = new float[n * DIM];
+        for (int o = 0; o < n; o++) System.arraycopy(rows[o], 0, packed, o * DIM, DIM);
+        xyzAll = new float[3 * n];
+        queries = new float[QUERIES * DIM];
+        for (int d = 0; d < queries.length; d++) queries[d] = r.nextFloat() - 0.5f;
+        dots = new float[64 * QUERIES];
+        fp16 = new short[n][];
+        bf16 = new short[n][];
+        for (int o = 0; o < n; o++) {
+            fp16[o] = Half384f.encode(new Vec384f(rows[o]), Half384f.Format.FP16).bits;
+            bf16[o] = Half384f.encode(new Vec384f(rows[o]), Half384f.Format.BF16).bits;
+        }
+        scratch = new float[DIM];
+    }
+
+    @Benchmark
+    public float dotScalar() {
+        return ScalarKernels.dot(rows[0], 0, query, 0, DIM);
+    }
+
+    @Benchmark
+    public float dotSimd() {
+        return SimdKernels.dot(rows[0], 0, query, 0, DIM);
+    }
+
+    @Benchmark
+    public void scanDotScalar(Blackhole bh) {
+        for (float[] row : rows) bh.consume(ScalarKernels.dot(row, 0, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanDotSimd(Blackhole bh) {
+        for (float[] row : rows) bh.consume(SimdKernels.dot(row, 0, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanSquareDistanceScalar(Blackhole bh) {
+        for (float[] row : rows) bh.consume(ScalarKernels.squareDistance(row, 0, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanSquareDistanceSimd(Blackhole bh) {
+        for (float[] row : rows) bh.consume(SimdKernels.squareDistance(row, 0, query, 0, DIM));
+    }
+
+    /** The old HalfKnnIndex scan: decode each row into fp32 scratch, then score it (compare to scanDotSimd). */
+    @Benchmark
+    public void scanDotFp16DecodeSimd(Blackhole bh) {
+        for (short[] row : fp16) {
+            Half384f.decode(row, 0, scratch, 0, DIM, Half384f.Format.FP16);
+            bh.consume(SimdKernels.dot(scratch, 0, query, 0, DIM));
+        }
+    }
+
+    @Benchmark
+    public void scanDotFp16Simd(Blackhole bh) {
+        for (short[] row : fp16) bh.consume(SimdKernels.dotHalf(row, 0, false, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanDotBf16DecodeSimd(Blackhole bh) {
+        for (short[] row : bf16) {
+            Half384f.decode(row, 0, scratch, 0, DIM, Half384f.Format.BF16);
+            bh.consume(SimdKernels.dot(scratch, 0, query, 0, DIM));
+        }
+    }
+
+    @Benchmark
+    public void scanDotBf16Simd(Blackhole bh) {
+        for (short[] row : bf16) bh.consume(SimdKernels.dotHalf(row, 0, true, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanSquareDistanceFp16Simd(Blackhole bh) {
+        for (short[] row : fp16) bh.consume(SimdKernels.squareDistanceHalf(row, 0, false, query, 0, DIM));
+    }
+
+    @Benchmark
+    public void scanDotFp16Scalar(Blackhole bh) {
+        for (short[] row : fp16) bh.consume(ScalarKernels.dotHalf(row, 0, false, query, 0, DIM));
+    }
+
+    @Benchmark
+    public float[] projectScalar() {
+        float[] i = rows[1], j = rows[2], k = rows[3];
+        ScalarKernels.project(rows[0], 0, query, 0, i, j, k, xyz, 0);
+        return xyz;
+    }
+
+    @Benchmark
+    public float[] projectSimd() {
+        float[] i = rows[1], j = rows[2], k = rows[3];
+        SimdKernels.project(rows[0], 0, query, 0, i, j, k, xyz, 0);
+        return xyz;
+    }
+
+    @Benchmark
+    public void scanProjectSimd(Blackhole bh) {
+        float[] i = rows[1], j = rows[2], k = rows[3];
+        for (float[] row : rows) {
+            SimdKernels.project(row, 0, query, 0, i, j, k, xyz, 0);
+            bh.consume(xyz);
+        }
+    }
+
+    @Benchmark
+    public float[] projectRowsScalar() {
+        ScalarKernels.projectRows(packed, n, rows[1], rows[2], rows[3], 0f, 0f, 0f, 1f, xyzAll);
+        return xyzAll;
+    }
+
+    @Benchmark
+    public float[] projectRowsSimd() {
+        SimdKernels.projectRows(packed, n, rows[1], rows[2], rows[3], 0f, 0f, 0f, 1f, xyzAll);
+        return xyzAll;
+    }
+
+    @Benchmark
+    public void scanDotManyQueriesSimd(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++)
+            for (int o = 0; o < n; o++) bh.consume(SimdKernels.dot(packed, o * DIM, queries, q * DIM, DIM));
+    }
+
+    @Benchmark
+    public float[] scanDotBlockSimd() {
+        for (int first = 0; first < n; first += 64)
+            SimdKernels.dotBlock(packed, first * DIM, Math.min(64, n - first), queries, QUERIES, dots);
+        return dots;
+    }
+}
@@ -2,13 +2,25 @@ package io.github.mysticism;
 
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
+import io.github.mysticism.vector.PqCodebook;
 import io.github.mysticism.vector.Vec384f;
 
 import java.util.stream.IntStream;
 
 public class Codecs {
     public static Codec<Vec384f> VEC384F = Codec.INT_STREAM.flatXmap(
-            stream -> DataResult.success(Vec384f.fromBits(stream.toArray())),
+            stream -> DataResult.success(Vec384f.fromBits(stream.toArray()).freeze()),
             vec -> DataResult.success(IntStream.of(vec.toBits()))
     );
+
+    public static Codec<PqCodebook> PQ_CODEBOOK = Codec.INT_STREAM.flatXmap(
+            stream -> {
+                try {
+                    return DataResult.success(PqCodebook.fromBits(stream.toArray()));
+                } catch (IllegalArgumentException e) {
+                    return DataResult.error(() -> "Bad PQ codebook: " + e.getMessage());
+                }
+            },
+            cb -> DataResult.success(IntStream.of(cb.toBits()))
+    );
 }
@@ -9,8 +9,10 @@ import io.github.mysticism.dimension.spiritworld.SpiritVisibilityService;
 import io.github.mysticism.dimension.spiritworld.SpiritWorldGenerator;
 import io.github.mysticism.embedding.EmbeddingHelper;
 import io.github.mysticism.net.SpiritNetworking;
+import io.github.mysticism.vector.Vec384f;
 import io.github.mysticism.world.region.HorizonSeeder;
 import io.github.mysticism.world.state.ItemEmbeddingIndexState;
+import io.github.mysticism.world.state.SpatialEmbeddingIndexState;
 import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
@@ -24,6 +26,11 @@ import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 public class Mysticism implements ModInitializer, DedicatedServerModInitializer {
     public static final String MOD_ID = "mysticism";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
@@ -70,16 +77,24 @@ public class Mysticism implements ModInitializer, DedicatedServerModInitializer
         EmbeddingHelper.awaitReady();
         ItemEmbeddingIndexState itemIndex = ItemEmbeddingIndexState.get(server);
         itemIndex.populateIfNeeded(() -> {
+            Map<String, Vec384f> embeddings = new HashMap<>();
             for (var item : Registries.ITEM) {
                 String id = Registries.ITEM.getId(item).toString();
                 io.github.mysticism.world.state.ItemEmbeddingIndexState.LOGGER.info("Indexing {}...", id);
-                itemIndex.getIndex().upsert(
+                embeddings.put(
                     id,
                     EmbeddingHelper.getEmbeddingBlocking(id).orElseThrow(() -> new IllegalStateException("Initial embedding cannot fail"))
                 );
             }
+            itemIndex.getIndex().upsertAll(embeddings);
             itemIndex.touch();
         });
+        // drop embeddings of items that no longer exist (mod removed, item renamed)
+        Set<String> itemIds = new HashSet<>();
+        for (var item : Registries.ITEM) itemIds.add(Registries.ITEM.getId(item).toString());
+        itemIndex.pruneMissing(itemIds);
+        // same for spatial regions whose dimension or biome is gone; the seeder regenerates emptied vanilla regions
+        SpatialEmbeddingIndexState.get(server).pruneMissing(server);
 
 
         // Start the horizon seeder
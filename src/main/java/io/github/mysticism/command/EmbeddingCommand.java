@@ -9,7 +9,10 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
 import io.github.mysticism.Mysticism;
 import io.github.mysticism.embedding.EmbeddingHelper;
+import io.github.mysticism.vector.KnnFilter;
 import io.github.mysticism.vector.KnnIndex;
+import io.github.mysticism.vector.KnnIndexKind;
+import io.github.mysticism.vector.KnnRecall;
 import io.github.mysticism.vector.Metric;
 import io.github.mysticism.vector.Vec384f;
 import io.github.mysticism.world.region.ISpiritualRegion;
@@ -31,7 +34,6 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class EmbeddingCommand {
 
@@ -42,6 +44,12 @@ public class EmbeddingCommand {
                     builder
             );
 
+    private static final SuggestionProvider<ServerCommandSource> KIND_SUGGESTIONS =
+            (context, builder) -> CommandSource.suggestMatching(
+                    Arrays.stream(KnnIndexKind.values()).map(Enum::name).toList(),
+                    builder
+            );
+
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
         dispatcher.register(
                 CommandManager.literal("embedding")
@@ -109,6 +117,20 @@ public class EmbeddingCommand {
                                         .executes(EmbeddingCommand::executeSpatialKnnItems)
                                 )
                         )
+
+                        // /embedding recall <items|spatial> <kind> <k>  (index kind vs exact fp32)
+                        .then(CommandManager.literal("recall")
+                                .requires(src -> src.hasPermissionLevel(2))
+                                .then(CommandManager.argument("target", StringArgumentType.word())
+                                        .suggests((c, b) -> CommandSource.suggestMatching(List.of("items", "spatial"), b))
+                                        .then(CommandManager.argument("kind", StringArgumentType.word())
+                                                .suggests(KIND_SUGGESTIONS)
+                                                .then(CommandManager.argument("k", IntegerArgumentType.integer(1))
+                                                        .executes(EmbeddingCommand::executeRecall)
+                                                )
+                                        )
+                                )
+                        )
         );
     }
 
@@ -142,11 +164,11 @@ public class EmbeddingCommand {
         if (itemVec.isEmpty()) return 0;
 
         KnnIndex spatial = SpatialEmbeddingIndexState.get(player.getServer()).getIndex();
-        List<Pair<String, Float>> results = spatial.kNN(k, itemVec.get(), Metric.COSINE);
-        results.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
+        KnnFilter here = SpatialEmbeddingIndexState.inDimension((ServerWorld) player.getWorld());
+        List<Pair<String, Float>> results = spatial.kNN(k, itemVec.get(), Metric.COSINE, here);
 
         if (results.isEmpty()) {
-            ctx.getSource().sendFeedback(() -> Text.literal("No spatial regions indexed yet.").formatted(Formatting.YELLOW), false);
+            ctx.getSource().sendFeedback(() -> Text.literal("No spatial regions indexed in this dimension yet.").formatted(Formatting.YELLOW), false);
             return 1;
         }
 
@@ -167,9 +189,11 @@ public class EmbeddingCommand {
         if (itemVec.isEmpty()) return 0;
 
         SpatialEmbeddingIndexState spatialState = SpatialEmbeddingIndexState.get(player.getServer());
-        List<Pair<String, Float>> res = spatialState.getIndex().kNN(1, itemVec.get(), Metric.COSINE);
+        // the spawn is resolved in the player's world, so only its own regions are candidates
+        KnnFilter here = SpatialEmbeddingIndexState.inDimension((ServerWorld) player.getWorld());
+        List<Pair<String, Float>> res = spatialState.getIndex().kNN(1, itemVec.get(), Metric.COSINE, here);
         if (res.isEmpty()) {
-            ctx.getSource().sendFeedback(() -> Text.literal("No spatial regions indexed yet.").formatted(Formatting.YELLOW), false);
+            ctx.getSource().sendFeedback(() -> Text.literal("No spatial regions indexed in this dimension yet.").formatted(Formatting.YELLOW), false);
             return 1;
         }
 
@@ -199,13 +223,9 @@ public class EmbeddingCommand {
             return 0;
         }
 
-        List<Pair<String, Float>> results = spatial.getIndex().kNN(k + 1, regionVec.get(), Metric.COSINE);
-        // drop self if present
-        results = results.stream()
-                .filter(p -> !p.getKey().equals(currentRegionId))
-                .sorted((a, b) -> Float.compare(b.getValue(), a.getValue()))
-                .limit(k)
-                .collect(Collectors.toList());
+        KnnFilter others = SpatialEmbeddingIndexState.inDimension((ServerWorld) player.getWorld())
+                .and(KnnFilter.excluding(currentRegionId));
+        List<Pair<String, Float>> results = spatial.getIndex().kNN(k, regionVec.get(), Metric.COSINE, others);
 
         if (results.isEmpty()) {
             ctx.getSource().sendFeedback(() -> Text.literal("No neighbors found for current region.").formatted(Formatting.YELLOW), false);
@@ -235,7 +255,6 @@ public class EmbeddingCommand {
 
         ItemEmbeddingIndexState itemState = ItemEmbeddingIndexState.get(player.getServer());
         List<Pair<String, Float>> results = itemState.getIndex().kNN(k, regionVec.get(), Metric.COSINE);
-        results.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
 
         if (results.isEmpty()) {
             ctx.getSource().sendFeedback(() -> Text.literal("Item index empty.").formatted(Formatting.YELLOW), false);
@@ -260,6 +279,61 @@ public class EmbeddingCommand {
         return 1;
     }
 
+    // -------------------- index diagnostics --------------------
+
+    private static final int RECALL_QUERIES = 64;
+
+    private static int executeRecall(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        String target = StringArgumentType.getString(ctx, "target");
+        String kindName = StringArgumentType.getString(ctx, "kind");
+        int k = IntegerArgumentType.getInteger(ctx, "k");
+
+        KnnIndexKind kind;
+        try {
+            kind = KnnIndexKind.valueOf(kindName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            src.sendError(Text.literal("Unknown index kind: " + kindName));
+            return 0;
+        }
+
+        KnnIndex source = switch (target) {
+            case "items" -> ItemEmbeddingIndexState.get(src.getServer()).getIndex();
+            case "spatial" -> SpatialEmbeddingIndexState.get(src.getServer()).getIndex();
+            default -> null;
+        };
+        if (source == null) {
+            src.sendError(Text.literal("Unknown target: " + target + ". Valid: items, spatial"));
+            return 0;
+        }
+        if (source.size() == 0) {
+            src.sendFeedback(() -> Text.literal("Index is empty.").formatted(Formatting.YELLOW), false);
+            return 1;
+        }
+
+        // Reference is always an exact fp32 copy, whatever the live index is backed by.
+        KnnIndex exact = KnnRecall.copyOf(source, KnnIndexKind.SIMPLE);
+        long t0 = System.nanoTime();
+        KnnIndex candidate = KnnRecall.copyOf(source, kind);
+        long buildMs = (System.nanoTime() - t0) / 1_000_000;
+
+        // Deterministic query sample: every n-th stored vector
+        List<Vec384f> all = new ArrayList<>();
+        exact.forEach((id, v) -> all.add(v));
+        int stride = Math.max(1, all.size() / RECALL_QUERIES);
+        List<Vec384f> queries = new ArrayList<>();
+        for (int i = 0; i < all.size() && queries.size() < RECALL_QUERIES; i += stride) queries.add(all.get(i));
+
+        for (Metric metric : Metric.values()) {
+            float recall = KnnRecall.recallAtK(exact, candidate, queries, k, metric);
+            String line = String.format("%s recall@%d vs fp32 (%s): %.4f", kind, k, metric, recall);
+            src.sendFeedback(() -> Text.literal(line).formatted(recall >= 0.99f ? Formatting.GREEN : Formatting.GOLD), false);
+        }
+        src.sendFeedback(() -> Text.literal(String.format("%d vectors, %d queries, built in %d ms",
+                exact.size(), queries.size(), buildMs)).formatted(Formatting.GRAY), false);
+        return 1;
+    }
+
     // -------------------- existing item commands --------------------
 
     private static int executeGetFromState(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
@@ -358,7 +432,6 @@ public class EmbeddingCommand {
             return 1;
         }
 
-        results.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
         src.sendFeedback(() -> Text.literal("Top " + results.size() + " similar to " + queryId + " (cosine):")
                 .formatted(Formatting.AQUA), false);
 
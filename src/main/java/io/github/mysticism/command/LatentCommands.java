@@ -146,13 +146,13 @@ public final class LatentCommands {
         switch (target) {
             case "pos" -> {
                 // RAW set (no normalization)
-                p.getComponent(MysticismEntityComponents.LATENT_POS).set(v.clone());
+                p.getComponent(MysticismEntityComponents.LATENT_POS).set(v);
                 MysticismEntityComponents.LATENT_POS.sync(p);
                 src.sendFeedback(() -> Text.literal("Set pos to RAW item embedding of " + id), false);
             }
             case "attune" -> {
                 // RAW set (no normalization)
-                p.getComponent(MysticismEntityComponents.LATENT_ATTUNEMENT).set(v.clone());
+                p.getComponent(MysticismEntityComponents.LATENT_ATTUNEMENT).set(v);
                 MysticismEntityComponents.LATENT_ATTUNEMENT.sync(p);
                 src.sendFeedback(() -> Text.literal("Set attunement to RAW item embedding of " + id), false);
             }
@@ -213,16 +213,21 @@ public final class LatentCommands {
         Vec384f seed1 = (attunementRaw != null && attunementRaw.length() > 1e-6f) ? attunementRaw.clone() : canonicalSeed();
 
         // j = normalize(seed1 - <seed1,i> i)
-        Vec384f j = seed1.sub(i.clone().mul(seed1.dot(i)));
-        if (j.length() < 1e-6f) j = canonicalSeed().sub(i.clone().mul(canonicalSeed().dot(i)));
+        Vec384f j = seed1.addScaled(i, -Vec384f.dot(seed1, i));
+        if (j.length() < 1e-6f) {
+            Vec384f c = canonicalSeed();
+            j = c.addScaled(i, -Vec384f.dot(c, i));
+        }
         normalizeInPlace(j);
 
         // k from another seed, orthogonalize against i & j
         Vec384f seed2 = altSeed();
-        Vec384f k = seed2.sub(i.clone().mul(seed2.dot(i))).sub(j.clone().mul(seed2.dot(j)));
+        Vec384f k = seed2.addScaled(i, -Vec384f.dot(seed2, i));
+        k.addScaled(j, -Vec384f.dot(k, j));
         if (k.length() < 1e-6f) {
             Vec384f h = hashedSeed(vItem);
-            k = h.sub(i.clone().mul(h.dot(i))).sub(j.clone().mul(h.dot(j)));
+            k = h.addScaled(i, -Vec384f.dot(h, i));
+            k.addScaled(j, -Vec384f.dot(k, j));
         }
         normalizeInPlace(k);
 
@@ -283,7 +288,8 @@ public final class LatentCommands {
             p.sendMessage(Text.literal("latent pos‖" + String.format("%.2f", pos.length())
                     + "  i‖" + String.format("%.2f", b.i.length())
                     + " j‖" + String.format("%.2f", b.j.length())
-                    + " k‖" + String.format("%.2f", b.k.length())), true);
+                    + " k‖" + String.format("%.2f", b.k.length())
+                    + " ⊥" + String.format("%.1e", b.orthoError())), true);
         }
     }
 }
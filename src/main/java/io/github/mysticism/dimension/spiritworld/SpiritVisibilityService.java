@@ -2,6 +2,8 @@ package io.github.mysticism.dimension.spiritworld;
 
 import io.github.mysticism.component.MysticismEntityComponents;
 import io.github.mysticism.net.SpiritDeltaPayload;
+import io.github.mysticism.vector.ContinuousKnn;
+import io.github.mysticism.vector.FlatKnnIndex;
 import io.github.mysticism.vector.Vec384f;
 import io.github.mysticism.world.state.ItemEmbeddingIndexState;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
@@ -18,6 +20,10 @@ public final class SpiritVisibilityService {
     private SpiritVisibilityService() {}
 
     private static final Map<UUID, Set<String>> LAST = new HashMap<>();
+    /** Per-player continuous kNN over the item index; most ticks only re-score the cached candidates. */
+    private static final Map<UUID, ContinuousKnn> SESSIONS = new HashMap<>();
+    /** Candidates kept past k, widening the band in which a moving player needs no rescan. */
+    private static final int SESSION_MARGIN = 128;
 
     public static boolean isSpiritWorld(ServerPlayerEntity p) {
         return p.getWorld().getRegistryKey().getValue().equals(Identifier.of("mysticism", "spirit"));
@@ -25,14 +31,24 @@ public final class SpiritVisibilityService {
 
     public static void tick(MinecraftServer server, int k) {
         var mgr = server.getPlayerManager();
+        var players = new ArrayList<ServerPlayerEntity>();
+        var queries = new ArrayList<Vec384f>();
         for (ServerPlayerEntity p : mgr.getPlayerList()) {
             if (!isSpiritWorld(p)) continue;
+            players.add(p);
+            queries.add(p.getComponent(MysticismEntityComponents.LATENT_POS).get());
+        }
+        if (players.isEmpty()) {
+            SESSIONS.clear();
+            return;
+        }
+
+        var state = ItemEmbeddingIndexState.get(server);
+        var nearest = nearestIds(state, players, queries, k);
 
-            var state = ItemEmbeddingIndexState.get(server);
-            var q = p.getComponent(MysticismEntityComponents.LATENT_POS).get();
-            // Adapt to your KnnIndex API if needed:
-            // assuming: List<String> ids = state.getIndex().knn(q, k);
-            var ids = state.nearestIds(k, q);
+        for (int i = 0; i < players.size(); i++) {
+            ServerPlayerEntity p = players.get(i);
+            var ids = nearest.get(i);
 
             var prev = LAST.computeIfAbsent(p.getUuid(), u -> new HashSet<>());
             var current = new HashSet<>(ids);
@@ -49,8 +65,8 @@ public final class SpiritVisibilityService {
 
             if (!addIds.isEmpty() || !remIds.isEmpty()) {
                 var added = new ArrayList<SpiritDeltaPayload.Added>(addIds.size());
-                for (int i = 0; i < addIds.size(); i++) {
-                    added.add(SpiritDeltaPayload.Added.of(addIds.get(i), addVecs.get(i)));
+                for (int j = 0; j < addIds.size(); j++) {
+                    added.add(SpiritDeltaPayload.Added.of(addIds.get(j), addVecs.get(j)));
                 }
                 ServerPlayNetworking.send(p, new SpiritDeltaPayload(added, remIds));
                 prev.clear(); prev.addAll(current);
@@ -58,6 +74,33 @@ public final class SpiritVisibilityService {
         }
     }
 
+    /** Continuous sessions on a flat item index; otherwise one batched pass for every player. */
+    private static List<List<String>> nearestIds(ItemEmbeddingIndexState state, List<ServerPlayerEntity> players,
+                                                 List<Vec384f> queries, int k) {
+        if (!(state.getIndex() instanceof FlatKnnIndex flat)) {
+            SESSIONS.clear();
+            return state.nearestIdsBatch(k, queries);
+        }
+
+        var sessions = new ArrayList<ContinuousKnn>(players.size());
+        var present = new HashSet<UUID>();
+        for (ServerPlayerEntity p : players) {
+            present.add(p.getUuid());
+            var session = SESSIONS.get(p.getUuid());
+            if (session == null || session.index() != flat) {
+                session = new ContinuousKnn(flat, k, SESSION_MARGIN);
+                SESSIONS.put(p.getUuid(), session);
+            }
+            sessions.add(session);
+        }
+        SESSIONS.keySet().retainAll(present);
+
+        ContinuousKnn.updateAll(sessions, queries);
+        var out = new ArrayList<List<String>>(sessions.size());
+        for (ContinuousKnn session : sessions) out.add(session.ids());
+        return out;
+    }
+
     public static void init() {
         ServerTickEvents.END_SERVER_TICK.register((server) -> {
             tick(server, 1643);
@@ -166,6 +166,8 @@ public class EmbeddingHelper {
                         if (vec == null) {
                             throw new IllegalStateException("EmbeddingService returned null embedding");
                         }
+                        // Cached vectors are shared with every caller; freeze so nobody mutates the cache
+                        vec.freeze();
                         CACHE.put(key, vec);
                         promise.complete(vec);
                     } catch (Throwable t) {
@@ -0,0 +1,209 @@
+package io.github.mysticism.vector;
+
+import ai.djl.util.Pair;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Exact brute-force kNN, like {@link SimpleKnnIndex}, with the vectors held off-heap in a
+ * {@link VectorArena}. Scans copy {@link #BLOCK_ROWS} rows at a time from the arena into a
+ * per-thread block and run the usual SIMD kernels over it, so memory is read sequentially and
+ * the heap only carries the id dictionary and per-row norms.
+ */
+public class ArenaKnnIndex implements KnnIndex {
+    private static final int DIM = Vec384f.DIM;
+    /** 64 rows = 96 KiB staged per block; fits in L2 next to the query. */
+    private static final int BLOCK_ROWS = 64;
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final VectorArena arena = new VectorArena();
+    private final HashMap<String, Integer> ordinals = new HashMap<>();
+    private String[] ids = new String[64];
+    private float[] invLengths = new float[64];
+
+    private static final ThreadLocal<float[]> BLOCK = ThreadLocal.withInitial(() -> new float[BLOCK_ROWS * DIM]);
+    private static final ThreadLocal<float[]> ROW = ThreadLocal.withInitial(() -> new float[DIM]);
+
+    public int size() {
+        rw.readLock().lock();
+        try { return arena.size(); }
+        finally { rw.readLock().unlock(); }
+    }
+
+    /* ----------------- storage ----------------- */
+
+    /** Write lock held. Returns the existing ordinal, or -1 if <code>id</code> is new. */
+    private int existing(String id) {
+        Integer ord = ordinals.get(id);
+        return ord != null ? ord : -1;
+    }
+
+    /** Write lock held. */
+    private int append(String id) {
+        int o = arena.allocate();
+        if (o >= ids.length) reserve(Math.max(ids.length * 2, o + 1));
+        ids[o] = id;
+        ordinals.put(id, o);
+        return o;
+    }
+
+    /** Grows the heap-side tables to hold at least <code>capacity</code> ordinals. Write lock held. */
+    private void reserve(int capacity) {
+        if (capacity <= ids.length) return;
+        ids = Arrays.copyOf(ids, capacity);
+        invLengths = Arrays.copyOf(invLengths, capacity);
+    }
+
+    /** Write lock held. */
+    private void store(int ord, float[] row) {
+        arena.write(ord, row, 0);
+        float sq = VecKernels.dot(row, row);
+        invLengths[ord] = sq > 0 ? (float) (1.0 / Math.sqrt(sq)) : 0f;
+    }
+
+    public void upsert(String id, Vec384f v) {
+        rw.writeLock().lock();
+        try {
+            int ord = existing(id);
+            store(ord >= 0 ? ord : append(id), v.data);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsertAll(Map<String, Vec384f> vectors) {
+        if (vectors.isEmpty()) return;
+        rw.writeLock().lock();
+        try {
+            reserve(arena.size() + vectors.size());
+            vectors.forEach((id, v) -> {
+                int ord = existing(id);
+                store(ord >= 0 ? ord : append(id), v.data);
+            });
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public Vec384f get(String id) {
+        rw.readLock().lock();
+        try {
+            Integer ord = ordinals.get(id);
+            if (ord == null) return null;
+            float[] out = new float[DIM];
+            arena.read(ord, out, 0);
+            return new Vec384f(out, invLengths[ord]).freeze();
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    public void deltaUpdate(String id, Vec384f delta) {
+        rw.writeLock().lock();
+        try {
+            final float[] row = ROW.get();
+            int ord = existing(id);
+            if (ord >= 0) arena.read(ord, row, 0);
+            else { Arrays.fill(row, 0f); ord = append(id); }
+            VecKernels.axpy(row, delta.data, 1f);
+            store(ord, row);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
+        rw.writeLock().lock();
+        try {
+            final float[] row = ROW.get();
+            for (String key : affectedKeys) {
+                int ord = existing(key);
+                if (ord >= 0) arena.read(ord, row, 0);
+                else { Arrays.fill(row, 0f); ord = append(key); }
+                for (int n = 0; n < DIM; n++) row[n] += (target.data[n] - row[n]) * factor;
+                store(ord, row);
+            }
+        } finally { rw.writeLock().unlock(); }
+    }
+
+    /** O(1): the last row is moved into the hole, so the arena stays dense and needs no compaction. */
+    public boolean remove(String id) {
+        rw.writeLock().lock();
+        try {
+            Integer ord = ordinals.remove(id);
+            if (ord == null) return false;
+            int last = arena.size() - 1;
+            if (ord != last) {
+                final float[] row = ROW.get();
+                arena.read(last, row, 0);
+                arena.write(ord, row, 0);
+                ids[ord] = ids[last];
+                invLengths[ord] = invLengths[last];
+                ordinals.put(ids[ord], ord);
+            }
+            ids[last] = null;
+            arena.removeLast();
+            return true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public void forEach(BiConsumer<String, Vec384f> consumer) {
+        List<String> idSnap = new ArrayList<>();
+        List<Vec384f> vecSnap = new ArrayList<>();
+        rw.readLock().lock();
+        try {
+            for (int o = 0; o < arena.size(); o++) {
+                float[] out = new float[DIM];
+                arena.read(o, out, 0);
+                idSnap.add(ids[o]);
+                vecSnap.add(new Vec384f(out, invLengths[o]).freeze());
+            }
+        } finally {
+            rw.readLock().unlock();
+        }
+        for (int i = 0; i < idSnap.size(); i++) consumer.accept(idSnap.get(i), vecSnap.get(i));
+    }
+
+    /* ----------------- search ----------------- */
+
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final float[] q = query.data;
+        final float queryInv = query.invLength();
+
+        rw.readLock().lock();
+        try {
+            final int count = arena.size();
+            if (count == 0) return new ArrayList<>();
+            TopK best = TopK.local(Math.min(k, count));
+            ParallelScan.topK(count, k, VectorArena.SLAB_ROWS / 4, (from, to, top) -> {
+                final float[] block = BLOCK.get();
+                for (int first = from; first < to; ) {
+                    int rows = arena.readBlock(first, Math.min(BLOCK_ROWS, to - first), block);
+                    for (int r = 0; r < rows; r++) {
+                        int off = r * DIM, o = first + r;
+                        float score = switch (metric) {
+                            case COSINE -> VecKernels.dot(block, off, q, 0, DIM) * invLengths[o] * queryInv;
+                            case DOT -> VecKernels.dot(block, off, q, 0, DIM);
+                            case EUCLIDEAN -> -VecKernels.squareDistance(block, off, q, 0, DIM);
+                        };
+                        top.offer(o, score);
+                    }
+                    first += rows;
+                }
+            }, best);
+
+            best.sortDescending();
+            List<Pair<String, Float>> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(new Pair<>(ids[best.ordinal(i)], best.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+}
@@ -8,6 +8,14 @@ public class Basis384f implements Cloneable {
     public Vec384f j;
     public Vec384f k;
 
+    /**
+     * Max |&lt;v, w&gt; - δ_vw| over the axes as of the last {@link BasisIntegrator384f} step
+     * (NaN until the first step). Steps fold in a Gram–Schmidt correction once this passes
+     * {@link BasisIntegrator384f#ORTHO_TOLERANCE}, so it never needs a separate pass.
+     */
+    float orthoError = Float.NaN;
+    int stepsSinceOrthonormal = 0;
+
     public Basis384f(Vec384f i, Vec384f j, Vec384f k) {
         this.i = i;
         this.j = j;
@@ -22,6 +30,10 @@ public class Basis384f implements Cloneable {
         return new Basis384f(null, null, null);
     }
 
+    public float orthoError() {
+        return orthoError;
+    }
+
     public int[] toBits() {
         return Arrays.stream(new int[][]{i.toBits(), j.toBits(), k.toBits()})
                 .flatMapToInt(Arrays::stream)
@@ -36,6 +48,11 @@ public class Basis384f implements Cloneable {
         );
     }
 
+    /** Read-only snapshot: all three axes frozen (shared if they already were). */
+    public Basis384f frozenCopy() {
+        return new Basis384f(i.frozenCopy(), j.frozenCopy(), k.frozenCopy());
+    }
+
     public Basis384f clone() {
         return new Basis384f(
             i.clone(),
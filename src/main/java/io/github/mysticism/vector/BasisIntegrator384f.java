@@ -13,97 +13,197 @@ package io.github.mysticism.vector;
  *   component orthogonal to u. Apply the SAME rotation to i, j, k.
  *
  * This yields smooth, monotone convergence in all axes and naturally eases near alignment.
+ * <p>
+ * u and t are never materialized: both lie in span{i, j, k, a}, so every quantity above is a
+ * function of the 4×4 Gram matrix of (i, j, k, a). One sweep gathers that matrix, the rotation
+ * (plus any orthonormal correction) is folded into a 3×4 coefficient matrix, and a second sweep rewrites
+ * i, j, k in place. Two passes over the data, no allocation.
  */
 public final class BasisIntegrator384f {
     private BasisIntegrator384f() {}
 
+    /** Per-thread scratch, so a step allocates nothing. */
+    private static final class Scratch {
+        final float[] gram = new float[10];
+        /** Row-major 4×4 Gram matrix of (i, j, k, a). */
+        final double[] G = new double[16];
+        /** <v, u> for v = i, j, k, a. */
+        final double[] vu = new double[4];
+        final double[] row = new double[4];
+        /** Row-major 3×4 combine coefficients. */
+        final float[] coeffs = new float[12];
+        /** The same 3×4 matrix in double, before rounding. */
+        final double[] C = new double[12];
+        /** Row-major 3×3 Gram matrix of the stepped axes, C G Cᵀ. */
+        final double[] G3 = new double[9];
+        final float[] inv = new float[3];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /** Max |<v, w> - δ_vw| over the axes before a Gram–Schmidt correction is folded into a step. */
+    public static final double ORTHO_TOLERANCE = 1e-5;
+    /** Steps between corrections even if the bound holds, so slow drift cannot hide in rounding. */
+    public static final int ORTHO_CADENCE = 1200;
+
     /** @return true if the basis changed. */
     public static boolean step(Basis384f B, Vec384f attunement, double dx, double dy, double dz, float eta) {
+        return step(B, attunement, dx, dy, dz, eta, null);
+    }
+
+    /**
+     * Same as {@link #step(Basis384f, Vec384f, double, double, double, float)}; when the basis changes
+     * and <code>rotationOut</code> is non-null, also writes the applied update into it as a row-major
+     * 3×4 matrix over the old (i, j, k, attunement), e.g. for {@link IncrementalProjector#rotate}.
+     *
+     * @return true if the basis changed.
+     */
+    public static boolean step(Basis384f B, Vec384f attunement, double dx, double dy, double dz, float eta,
+                               float[] rotationOut) {
         // 1) 3D movement magnitude (blocks)
         final double dist = Math.sqrt(dx*dx + dy*dy + dz*dz);
         if (dist < 1e-8) return false; // idle
-
-        // 2) Δℓ = dx*i + dy*j + dz*k ; u = normalize(Δℓ)
-        final Vec384f dL = lincomb(B.i, B.j, B.k, (float)dx, (float)dy, (float)dz);
-        final float len = dL.length();
-        if (len < 1e-8f) return false;
-        final Vec384f u = dL.clone().mul(1f / len); // unit
-
-        // 3) â = normalize(attunement) ; project orthogonal part t = unit(â - <â,u>u)
-        float aLen = attunement.length();
-        if (aLen < 1e-8f) return false; // no target direction
-        final Vec384f aHat = attunement.clone().mul(1f / aLen);
-
-        float ua = clamp(u.dot(aHat), -1f, 1f); // cos(theta)
+        // axes are rotated through their raw arrays; never do that to a shared snapshot
+        B.i.checkMutable(); B.j.checkMutable(); B.k.checkMutable();
+
+        // Sweep 1: Gram matrix G of (i, j, k, a), a = raw attunement
+        final Scratch s = SCRATCH.get();
+        final float[] g = s.gram;
+        VecKernels.basisGram(B.i.data, B.j.data, B.k.data, attunement.data, g);
+        final double[] G = s.G;
+        G[0] = g[0];  G[1] = g[3];  G[2] = g[4];  G[3] = g[6];
+        G[4] = g[3];  G[5] = g[1];  G[6] = g[5];  G[7] = g[7];
+        G[8] = g[4];  G[9] = g[5];  G[10] = g[2]; G[11] = g[8];
+        G[12] = g[6]; G[13] = g[7]; G[14] = g[8]; G[15] = g[9];
+
+        // 2) Δℓ = dx*i + dy*j + dz*k ; u = Δℓ / |Δℓ|, kept as coefficients over (i, j, k)
+        final double[] row = s.row;
+        row[0] = dx; row[1] = dy; row[2] = dz; row[3] = 0.0;
+        final double len = Math.sqrt(Math.max(0.0, quad(G, row)));
+        if (len < 1e-8) return false;
+
+        // 3) â = a / |a| ; t = unit(â - <â,u>u)
+        final double aLen = Math.sqrt(g[9]);
+        if (aLen < 1e-8) return false; // no target direction
+
+        // <v, u> for v = i, j, k, a (a's entry gives <a, u>)
+        final double[] vu = s.vu;
+        for (int r = 0; r < 4; r++) vu[r] = (G[4 * r] * dx + G[4 * r + 1] * dy + G[4 * r + 2] * dz) / len;
+
+        final double ua = clamp(vu[3] / aLen, -1.0, 1.0); // cos(theta)
         // Already aligned enough?
-        if (ua > 1f - 1e-8f) return false;
+        if (ua > 1.0 - 1e-8) return false;
 
-        Vec384f t = aHat.clone().sub(u.clone().mul(ua)); // orth component
-        float tLen = t.length();
-        if (tLen < 1e-8f) return false;
-        t.mul(1f / tLen); // unit, orth to u
+        final double tLen = Math.sqrt(Math.max(0.0, 1.0 - ua * ua));
+        if (tLen < 1e-8) return false;
 
         // 4) Fraction of remaining angle this step (eta ≈ percent per block)
         // alpha = theta * clamp(eta * |Δ3D|, 0..1)
         final double theta = Math.acos(ua);
-        final float fraction = clamp((float)(eta * dist), 0f, 1f);
-        final float alpha = (float)(theta * fraction);
-        if (alpha < 1e-9f) return false;
-
-        // 5) Apply exact plane rotation by angle "alpha" in span{u, t} to i, j, k
-        rotateInPlaneExact(B.i, u, t, alpha);
-        rotateInPlaneExact(B.j, u, t, alpha);
-        rotateInPlaneExact(B.k, u, t, alpha);
-
-        // 6) Tiny renorm guard (rotation should preserve norms; fp noise only)
-        renormIfNeeded(B.i);
-        renormIfNeeded(B.j);
-        renormIfNeeded(B.k);
-
-        // Keep cached normalized arrays fresh (if you ever call v.norm()).
-        B.i.updateNorm(); B.j.updateNorm(); B.k.updateNorm();
+        final double fraction = clamp(eta * dist, 0.0, 1.0);
+        final double alpha = theta * fraction;
+        if (alpha < 1e-9) return false;
+        final double ca = Math.cos(alpha), sa = Math.sin(alpha);
+
+        // 5) Exact plane rotation of each axis in span{u, t}:
+        //    v' = v + (a2 - a) u + (b2 - b) t with a = <v,u>, b = <v,t>, (a2, b2) = R(alpha)(a, b).
+        //    Substituting u = Σ w_m e_m / len and t = (a/|a| - ua u) / tLen gives
+        //    v' = v + p (dx i + dy j + dz k) + q a.
+        final double[] C = s.C;
+        for (int v = 0; v < 3; v++) {
+            final double av = vu[v];
+            final double bv = (G[4 * v + 3] / aLen - ua * av) / tLen;
+            final double cu = (av * ca - bv * sa) - av;
+            final double ct = (av * sa + bv * ca) - bv;
+            final double p = (cu - ct * ua / tLen) / len;
+            final double q = ct / (aLen * tLen);
+            row[0] = (v == 0 ? 1.0 : 0.0) + p * dx;
+            row[1] = (v == 1 ? 1.0 : 0.0) + p * dy;
+            row[2] = (v == 2 ? 1.0 : 0.0) + p * dz;
+            row[3] = q;
+            System.arraycopy(row, 0, C, 4 * v, 4);
+        }
+
+        // 6) Lazy orthonormalization. The stepped axes' Gram matrix is C G Cᵀ, so orthogonality and
+        //    norm error are known without touching the data. Only when that error passes the bound
+        //    (or the cadence comes round) is a Gram–Schmidt correction folded into C.
+        final double[] G3 = s.G3;
+        double err = 0.0;
+        for (int v = 0; v < 3; v++) {
+            for (int w = v; w < 3; w++) {
+                double sum = 0.0;
+                for (int m = 0; m < 4; m++)
+                    for (int n = 0; n < 4; n++) sum += C[4 * v + m] * G[4 * m + n] * C[4 * w + n];
+                G3[3 * v + w] = sum;
+                G3[3 * w + v] = sum;
+                err = Math.max(err, Math.abs(sum - (v == w ? 1.0 : 0.0)));
+            }
+        }
+        final float[] inv = s.inv;
+        if ((err > ORTHO_TOLERANCE || ++B.stepsSinceOrthonormal >= ORTHO_CADENCE) && orthonormalize(C, G3)) {
+            inv[0] = inv[1] = inv[2] = 1f;
+            B.stepsSinceOrthonormal = 0;
+            B.orthoError = 0f;
+        } else {
+            for (int v = 0; v < 3; v++) {
+                double l2 = G3[4 * v];
+                inv[v] = l2 > 0 ? (float) (1.0 / Math.sqrt(l2)) : 0f;
+            }
+            B.orthoError = (float) err;
+        }
+        final float[] c = s.coeffs;
+        for (int m = 0; m < 12; m++) c[m] = (float) C[m];
+
+        // Sweep 2: rewrite i, j, k in place from the old (i, j, k, a)
+        VecKernels.basisCombine(B.i.data, B.j.data, B.k.data, attunement.data, c);
+
+        // Axes were written through their raw arrays; the new lengths are already known from G.
+        B.i.setInvLength(inv[0]); B.j.setInvLength(inv[1]); B.k.setInvLength(inv[2]);
+        if (rotationOut != null) System.arraycopy(c, 0, rotationOut, 0, 12);
         return true;
     }
 
     /* ----------------- internals ----------------- */
 
-    private static Vec384f lincomb(Vec384f i, Vec384f j, Vec384f k, float dx, float dy, float dz) {
-        float[] out = new float[384];
-        float[] a = i.data, b = j.data, c = k.data;
-        for (int n = 0; n < 384; n++) out[n] = a[n]*dx + b[n]*dy + c[n]*dz;
-        return new Vec384f(out);
-    }
-
     /**
-     * Exact rotation in the 2D plane spanned by orthonormal (u, t).
-     * For any vector v: decompose v = a*u + b*t + w, rotate (a,b) by alpha, keep w unchanged.
+     * Gram–Schmidt on the rows of C, done on coefficients: with G3 = L Lᵀ (Cholesky),
+     * L⁻¹ C spans the same flag (i first, then j, then k) with an orthonormal result.
+     * Returns false, leaving C alone, if the axes are (near) degenerate.
      */
-    private static void rotateInPlaneExact(Vec384f v, Vec384f u, Vec384f t, float alpha) {
-        final float a = v.dot(u);
-        final float b = v.dot(t);
-        final float ca = (float)Math.cos(alpha);
-        final float sa = (float)Math.sin(alpha);
-        // new coefficients in the (u,t) plane
-        final float a2 = a * ca - b * sa;
-        final float b2 = a * sa + b * ca;
-        // v := (v - a*u - b*t) + a2*u + b2*t
-        addScaled(v, u, a2 - a);
-        addScaled(v, t, b2 - b);
-    }
-
-    /** v := v + s * src (zero-alloc) */
-    private static void addScaled(Vec384f v, Vec384f src, float s) {
-        if (s == 0f) return;
-        float[] a = v.data, b = src.data;
-        for (int n = 0; n < 384; n++) a[n] += b[n] * s;
+    private static boolean orthonormalize(double[] C, double[] G3) {
+        final double l00 = G3[0];
+        if (l00 < 1e-12) return false;
+        final double L00 = Math.sqrt(l00);
+        final double L10 = G3[3] / L00, L20 = G3[6] / L00;
+        final double l11 = G3[4] - L10 * L10;
+        if (l11 < 1e-12) return false;
+        final double L11 = Math.sqrt(l11);
+        final double L21 = (G3[7] - L20 * L10) / L11;
+        final double l22 = G3[8] - L20 * L20 - L21 * L21;
+        if (l22 < 1e-12) return false;
+        final double L22 = Math.sqrt(l22);
+
+        // forward substitution, row by row (rows of C are the axes i, j, k)
+        for (int m = 0; m < 4; m++) {
+            double r0 = C[m] / L00;
+            double r1 = (C[4 + m] - L10 * r0) / L11;
+            double r2 = (C[8 + m] - L20 * r0 - L21 * r1) / L22;
+            C[m] = r0;
+            C[4 + m] = r1;
+            C[8 + m] = r2;
+        }
+        return true;
     }
 
-    private static void renormIfNeeded(Vec384f v) {
-        float l2 = v.length();
-        if (Math.abs(l2 - 1f) > 1e-5f && l2 > 1e-12f) v.mul(1f / l2);
+    /** xᵀ G x, with x holding coefficients over (i, j, k, a). */
+    private static double quad(double[] G, double[] x) {
+        double out = 0.0;
+        for (int r = 0; r < 4; r++)
+            for (int m = 0; m < 4; m++) out += x[r] * G[4 * r + m] * x[m];
+        return out;
     }
 
-    private static float clamp(float x, float lo, float hi) {
+    private static double clamp(double x, double lo, double hi) {
         return x < lo ? lo : (x > hi ? hi : x);
     }
 }
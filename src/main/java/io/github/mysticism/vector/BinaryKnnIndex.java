@@ -0,0 +1,70 @@
+package io.github.mysticism.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 1-bit sketch prefilter: every vector is reduced to its 384 sign bits (six longs, 48 bytes),
+ * the first pass ranks by Hamming distance with {@link Long#bitCount}, and only the shortlist
+ * is rescored in fp32.
+ * <p>
+ * Hamming distance between sign sketches tracks the angle between vectors, so this is tightest
+ * for COSINE; DOT/EUCLIDEAN still come out exact after re-ranking but may want a longer shortlist.
+ * It only pays off when k is small next to the index: once the shortlist nears the whole index
+ * (e.g. the k=1643 visibility query) it is an exact scan plus the sketch pass.
+ */
+public class BinaryKnnIndex extends RerankingKnnIndex {
+    static final int WORDS = DIM / Long.SIZE; // 6
+
+    private long[] sketches = new long[64 * WORDS];
+
+    private static final ThreadLocal<long[]> QUERY_SKETCH = ThreadLocal.withInitial(() -> new long[WORDS]);
+
+    public BinaryKnnIndex() {
+        this(8, 64);
+    }
+
+    public BinaryKnnIndex(int shortlistFactor, int shortlistSlack) {
+        super(shortlistFactor, shortlistSlack);
+    }
+
+    static void sketch(float[] src, int so, long[] dst, int doff) {
+        for (int w = 0; w < WORDS; w++) {
+            long bits = 0L;
+            int base = so + w * Long.SIZE;
+            for (int b = 0; b < Long.SIZE; b++) if (src[base + b] > 0f) bits |= 1L << b;
+            dst[doff + w] = bits;
+        }
+    }
+
+    @Override
+    protected void growSketch(int capacity) {
+        sketches = Arrays.copyOf(sketches, capacity * WORDS);
+    }
+
+    @Override
+    protected void encode(int ord) {
+        sketch(rows, ord * DIM, sketches, ord * WORDS);
+    }
+
+    @Override
+    protected void moveSketch(int from, int to) {
+        System.arraycopy(sketches, from * WORDS, sketches, to * WORDS, WORDS);
+    }
+
+    @Override
+    protected void scanSketch(float[] query, Metric metric, BitSet allowed, int from, int to, TopK shortlist) {
+        final long[] q = QUERY_SKETCH.get();
+        sketch(query, 0, q, 0);
+        final long q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3], q4 = q[4], q5 = q[5];
+        final long[] s = sketches;
+
+        for (int o = from, off = from * WORDS; o < to; o++, off += WORDS) {
+            if (allowed != null && !allowed.get(o)) continue;
+            int hamming = Long.bitCount(s[off] ^ q0) + Long.bitCount(s[off + 1] ^ q1)
+                    + Long.bitCount(s[off + 2] ^ q2) + Long.bitCount(s[off + 3] ^ q3)
+                    + Long.bitCount(s[off + 4] ^ q4) + Long.bitCount(s[off + 5] ^ q5);
+            shortlist.offer(o, -hamming);
+        }
+    }
+}
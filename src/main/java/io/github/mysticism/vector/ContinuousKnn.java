@@ -0,0 +1,146 @@
+package io.github.mysticism.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Euclidean kNN session for one slowly moving query, e.g. a player's latent position.
+ * <p>
+ * A rescan keeps the k + margin nearest rows to the query at that moment (the anchor) and
+ * <code>guard</code>, the distance from the anchor to the nearest row outside that set. While
+ * the index is unchanged and the query has moved δ from the anchor, every outside row is still
+ * at least guard - δ away (triangle inequality). So if the k-th best candidate, re-scored
+ * exactly, is no farther than that, the candidates' top k is the true top k and only
+ * O(k + margin) rows were read. Otherwise, or after any write to the index, it rescans.
+ * <p>
+ * Not thread-safe; one session per query stream.
+ */
+public final class ContinuousKnn {
+    private static final int DIM = Vec384f.DIM;
+
+    private final FlatKnnIndex index;
+    private final int k;
+    private final int margin;
+
+    private final float[] anchor = new float[DIM];
+    private int[] candidates = new int[0];
+    private float guard = Float.POSITIVE_INFINITY;
+    private long version = -1;
+
+    private final TopK selected;
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> view = Collections.unmodifiableList(ids);
+    private long rescans = 0;
+    private long reuses = 0;
+
+    /**
+     * @param index The index to follow.
+     * @param k The number of neighbors to keep current.
+     * @param margin Extra candidates kept past k; more margin means a wider guard band and rarer rescans.
+     */
+    public ContinuousKnn(FlatKnnIndex index, int k, int margin) {
+        if (k <= 0 || margin < 0) throw new IllegalArgumentException("k must be > 0 and margin >= 0");
+        this.index = index;
+        this.k = k;
+        this.margin = margin;
+        this.selected = new TopK(k);
+    }
+
+    public FlatKnnIndex index() { return index; }
+
+    /** Full scans performed so far. */
+    public long rescans() { return rescans; }
+
+    /** Updates answered from the candidate set alone. */
+    public long reuses() { return reuses; }
+
+    /** Ids of the current k nearest, nearest first. Read-only; valid until the next update. */
+    public List<String> ids() { return view; }
+
+    /**
+     * Moves the query to <code>query</code> and returns the k nearest ids, nearest first.
+     * Read-only; valid until the next update.
+     */
+    public List<String> update(Vec384f query) {
+        updateAll(List.of(this), List.of(query));
+        return view;
+    }
+
+    /**
+     * Moves every session to its query in one read-locked pass; the sessions that need a
+     * rescan share a single batched scan. All sessions must follow the same index.
+     */
+    public static void updateAll(List<ContinuousKnn> sessions, List<Vec384f> queries) {
+        if (sessions.isEmpty()) return;
+        final FlatKnnIndex index = sessions.getFirst().index;
+        index.rw.readLock().lock();
+        try {
+            List<ContinuousKnn> stale = new ArrayList<>();
+            List<Vec384f> staleQueries = new ArrayList<>();
+            int width = 0;
+            for (int s = 0; s < sessions.size(); s++) {
+                ContinuousKnn session = sessions.get(s);
+                if (session.index != index) throw new IllegalArgumentException("sessions follow different indexes");
+                Vec384f query = queries.get(s);
+                if (session.tryReuseLocked(query.data)) {
+                    session.reuses++;
+                } else {
+                    stale.add(session);
+                    staleQueries.add(query);
+                    width = Math.max(width, session.k + session.margin + 1);
+                }
+            }
+            if (stale.isEmpty()) return;
+
+            TopK[] tops = new TopK[stale.size()];
+            for (int s = 0; s < tops.length; s++) tops[s] = new TopK(Math.min(width, index.count));
+            index.exactSearchBatchLocked(width, staleQueries, Metric.EUCLIDEAN, tops);
+            for (int s = 0; s < tops.length; s++) stale.get(s).rebuildLocked(staleQueries.get(s).data, tops[s]);
+        } finally {
+            index.rw.readLock().unlock();
+        }
+    }
+
+    /** Re-scores the candidates at <code>q</code>; false if the guard band cannot prove the result. Read lock held. */
+    private boolean tryReuseLocked(float[] q) {
+        if (version != index.version) return false;
+        final float delta = (float) Math.sqrt(VecKernels.squareDistance(q, anchor));
+        if (delta >= guard) return false;
+
+        selected.reset(Math.min(k, candidates.length));
+        for (int ord : candidates)
+            selected.offer(ord, -VecKernels.squareDistance(index.rows, ord * DIM, q, 0, DIM));
+        if (guard != Float.POSITIVE_INFINITY && selected.size() > 0) {
+            float kth = (float) Math.sqrt(-selected.threshold());
+            if (kth > guard - delta) return false;
+        }
+        selected.sortDescending();
+        publishLocked();
+        return true;
+    }
+
+    /** Takes the exact top k + margin + 1 at <code>q</code> (best first) as the new anchor. Read lock held. */
+    private void rebuildLocked(float[] q, TopK top) {
+        rescans++;
+        final int n = Math.min(k + margin, top.size());
+        candidates = Arrays.copyOf(top.ordinals(), n);
+        // re-measured with the same kernel the reuse path scores candidates with
+        guard = top.size() > n
+                ? (float) Math.sqrt(VecKernels.squareDistance(index.rows, top.ordinal(n) * DIM, q, 0, DIM))
+                : Float.POSITIVE_INFINITY;
+        System.arraycopy(q, 0, anchor, 0, DIM);
+        version = index.version;
+
+        selected.reset(Math.min(k, n));
+        for (int i = 0; i < n; i++) selected.offer(top.ordinal(i), top.score(i));
+        selected.sortDescending();
+        publishLocked();
+    }
+
+    private void publishLocked() {
+        ids.clear();
+        for (int i = 0; i < selected.size(); i++) ids.add(index.ids[selected.ordinal(i)]);
+    }
+}
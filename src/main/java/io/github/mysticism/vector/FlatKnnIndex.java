@@ -0,0 +1,616 @@
+package io.github.mysticism.vector;
+
+import ai.djl.util.Pair;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Exact brute-force kNN over flat storage: vectors live row-major in one <code>float[]</code>,
+ * addressed by int ordinal through a String ↔ int dictionary, with norms kept alongside.
+ * <p>
+ * Searches run a tight kernel loop over the rows into a {@link TopK} of primitive
+ * (ordinal, score) pairs; ids are only looked up for the final k results. Use
+ * {@link #search} directly to skip even that.
+ * <p>
+ * Removal only tombstones the ordinal: it leaves {@link #live} and every scan skips it. Once
+ * enough of the slots are dead, a background task {@link #compact()}s the storage so scan cost
+ * follows the live data again.
+ * <p>
+ * Also the storage base for {@link RerankingKnnIndex}, which hooks row changes to keep its
+ * sketches in sync.
+ */
+public class FlatKnnIndex implements KnnIndex {
+    protected static final int DIM = Vec384f.DIM;
+
+    /** Compaction is queued once at least this many slots, and {@link #COMPACT_DEAD_FRACTION} of all slots, are dead. */
+    public static final int COMPACT_MIN_DEAD = 256;
+    public static final float COMPACT_DEAD_FRACTION = 0.25f;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Mysticism-KnnCompactor");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    protected final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final HashMap<String, Integer> ordinals = new HashMap<>();
+
+    protected String[] ids = new String[64];
+    /** Full-precision rows, <code>DIM</code> floats per ordinal. */
+    protected float[] rows = new float[64 * DIM];
+    protected float[] invLengths = new float[64];
+    protected float[] sqNorms = new float[64];
+    /** Slots in use, dead ones included; scans run over [0, count). */
+    protected int count = 0;
+    /** Live ordinals, or null while no slot is dead (so unfiltered scans need no checks). */
+    protected BitSet live = null;
+    protected int deadCount = 0;
+    private boolean compactionQueued = false;
+    /** Bumped on every write, removal and compaction; lets cached results ({@link ContinuousKnn}) detect changes. */
+    protected long version = 0;
+    /** Bumped only when ordinals move ({@link #compact()}); stamps the results of {@link #search}. */
+    private long layout = 0;
+
+    /* ----------------- subclass hooks (all called under the write lock) ----------------- */
+
+    /** Storage was grown to hold <code>capacity</code> ordinals. */
+    protected void capacityChanged(int capacity) {}
+
+    /** The row of an existing <code>ord</code> is about to be overwritten. */
+    protected void rowWillChange(int ord) {}
+
+    /** The row of <code>ord</code> and its norms were just (re)written. */
+    protected void rowChanged(int ord) {}
+
+    /** The first <code>n</code> of <code>ords</code> were just (re)written together by {@link #upsertAll}. */
+    protected void rowsChanged(int[] ords, int n) {
+        for (int i = 0; i < n; i++) rowChanged(ords[i]);
+    }
+
+    /** <code>ord</code> was removed; its slot stays dead until the next compaction. */
+    protected void rowRemoved(int ord) {}
+
+    /** Compaction moved the row at <code>from</code> down to <code>to</code> (to &lt; from, ascending order). */
+    protected void rowMoved(int from, int to) {}
+
+    /* ----------------- storage ----------------- */
+
+    private int ordinalFor(String id) {
+        Integer ord = ordinals.get(id);
+        if (ord != null) return ord;
+        int o = count++;
+        if (o >= ids.length) reserve(Math.max(ids.length * 2, o + 1));
+        ids[o] = id;
+        ordinals.put(id, o);
+        if (live != null) live.set(o);
+        return o;
+    }
+
+    /** Grows storage to hold at least <code>capacity</code> ordinals. Write lock held. */
+    private void reserve(int capacity) {
+        if (capacity <= ids.length) return;
+        ids = Arrays.copyOf(ids, capacity);
+        rows = Arrays.copyOf(rows, capacity * DIM);
+        invLengths = Arrays.copyOf(invLengths, capacity);
+        sqNorms = Arrays.copyOf(sqNorms, capacity);
+        capacityChanged(capacity);
+    }
+
+    private void stored(int ord) {
+        storeNorms(ord);
+        rowChanged(ord);
+    }
+
+    private void storeNorms(int ord) {
+        version++;
+        float sq = VecKernels.dot(rows, ord * DIM, rows, ord * DIM, DIM);
+        sqNorms[ord] = sq;
+        invLengths[ord] = sq > 0 ? (float) (1.0 / Math.sqrt(sq)) : 0f;
+    }
+
+    public int size() {
+        rw.readLock().lock();
+        try { return count - deadCount; }
+        finally { rw.readLock().unlock(); }
+    }
+
+    /**
+     * Id stored at <code>ord</code>, an ordinal returned by the {@link #search} that produced
+     * <code>layout</code>. Ordinals move when a compaction runs, which the background compactor
+     * may do at any time after a removal; returns null if that happened since the search (search
+     * again), or if the id has been removed since.
+     */
+    public String idAt(int ord, long layout) {
+        rw.readLock().lock();
+        try { return layout == this.layout ? ids[ord] : null; }
+        finally { rw.readLock().unlock(); }
+    }
+
+    public void upsert(String id, Vec384f v) {
+        rw.writeLock().lock();
+        try {
+            int ord = ordinalFor(id);
+            rowWillChange(ord);
+            System.arraycopy(v.data, 0, rows, ord * DIM, DIM);
+            stored(ord);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** One write lock and one storage resize for the whole batch; subclasses get a single {@link #rowsChanged} call. */
+    @Override
+    public void upsertAll(Map<String, Vec384f> vectors) {
+        if (vectors.isEmpty()) return;
+        rw.writeLock().lock();
+        try {
+            reserve(count + vectors.size());
+            final int[] ords = new int[vectors.size()];
+            int n = 0;
+            for (Map.Entry<String, Vec384f> e : vectors.entrySet()) {
+                int ord = ordinalFor(e.getKey());
+                rowWillChange(ord);
+                System.arraycopy(e.getValue().data, 0, rows, ord * DIM, DIM);
+                storeNorms(ord);
+                ords[n++] = ord;
+            }
+            rowsChanged(ords, n);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public Vec384f get(String id) {
+        rw.readLock().lock();
+        try {
+            Integer ord = ordinals.get(id);
+            if (ord == null) return null;
+            return new Vec384f(Arrays.copyOfRange(rows, ord * DIM, ord * DIM + DIM), invLengths[ord]).freeze();
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    public void deltaUpdate(String id, Vec384f delta) {
+        rw.writeLock().lock();
+        try {
+            int ord = ordinalFor(id);
+            rowWillChange(ord);
+            VecKernels.axpy(rows, ord * DIM, delta.data, 0, 1f, DIM);
+            stored(ord);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
+        rw.writeLock().lock();
+        try {
+            for (String key : affectedKeys) {
+                int ord = ordinalFor(key);
+                rowWillChange(ord);
+                int off = ord * DIM;
+                for (int n = 0; n < DIM; n++) rows[off + n] += (target.data[n] - rows[off + n]) * factor;
+                stored(ord);
+            }
+        } finally { rw.writeLock().unlock(); }
+    }
+
+    public boolean remove(String id) {
+        rw.writeLock().lock();
+        try {
+            Integer ord = ordinals.remove(id);
+            if (ord == null) return false;
+            if (live == null) {
+                live = new BitSet(count);
+                live.set(0, count);
+            }
+            live.clear(ord);
+            ids[ord] = null;
+            deadCount++;
+            version++;
+            rowRemoved(ord);
+            if (!compactionQueued && deadCount >= COMPACT_MIN_DEAD && deadCount >= count * COMPACT_DEAD_FRACTION) {
+                compactionQueued = true;
+                COMPACTOR.execute(this::compact);
+            }
+            return true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves every live row down over the dead slots, in place, so storage is dense again.
+     * Live ordinals change. Runs on the compactor thread when removals pile up; holds the
+     * write lock for one pass of array copies.
+     */
+    public void compact() {
+        rw.writeLock().lock();
+        try {
+            compactionQueued = false;
+            if (deadCount == 0) return;
+            int w = 0;
+            for (int o = live.nextSetBit(0); o >= 0 && o < count; o = live.nextSetBit(o + 1), w++) {
+                if (o == w) continue;
+                System.arraycopy(rows, o * DIM, rows, w * DIM, DIM);
+                ids[w] = ids[o];
+                invLengths[w] = invLengths[o];
+                sqNorms[w] = sqNorms[o];
+                ordinals.put(ids[w], w);
+                rowMoved(o, w);
+            }
+            Arrays.fill(ids, w, count, null);
+            // ordinalFor hands these slots out again, and deltaUpdate/converge start a new id from its row
+            Arrays.fill(rows, w * DIM, count * DIM, 0f);
+            Arrays.fill(invLengths, w, count, 0f);
+            Arrays.fill(sqNorms, w, count, 0f);
+            count = w;
+            live = null;
+            deadCount = 0;
+            version++;
+            layout++;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** Rows copied out per read-lock hold in {@link #forEach}. */
+    private static final int FOREACH_CHUNK = 256;
+
+    /**
+     * Hands out a frozen copy of every live vector, copying {@link #FOREACH_CHUNK} rows per
+     * read-lock hold and calling <code>consumer</code> with no lock held, so a full pass never
+     * holds more than one chunk beyond what the consumer keeps. Not an atomic snapshot: a vector
+     * written during the pass may show either value. If a compaction moves ordinals mid-pass, the
+     * pass restarts and skips ids it has already handed out.
+     */
+    public void forEach(BiConsumer<String, Vec384f> consumer) {
+        final String[] idChunk = new String[FOREACH_CHUNK];
+        final Vec384f[] vecChunk = new Vec384f[FOREACH_CHUNK];
+        final List<String> emitted = new ArrayList<>();
+        Set<String> skip = null;
+        long seenLayout = -1;
+        for (int from = 0; ; ) {
+            int n = 0, next;
+            rw.readLock().lock();
+            try {
+                if (seenLayout != layout) {
+                    if (seenLayout != -1) {
+                        skip = new HashSet<>(emitted);
+                        from = 0;
+                    }
+                    seenLayout = layout;
+                }
+                if (from >= count) break;
+                next = Math.min(count, from + FOREACH_CHUNK);
+                for (int o = from; o < next; o++) {
+                    String id = ids[o];
+                    if (id == null || (skip != null && skip.contains(id))) continue;
+                    idChunk[n] = id;
+                    vecChunk[n++] = new Vec384f(Arrays.copyOfRange(rows, o * DIM, o * DIM + DIM), invLengths[o]).freeze();
+                }
+            } finally {
+                rw.readLock().unlock();
+            }
+            for (int i = 0; i < n; i++) {
+                emitted.add(idChunk[i]);
+                consumer.accept(idChunk[i], vecChunk[i]);
+                vecChunk[i] = null;
+            }
+            from = next;
+        }
+    }
+
+    /* ----------------- search ----------------- */
+
+    /** Exact score of a stored row; bigger = closer for every metric. */
+    protected final float exactScore(int ord, float[] q, float queryInv, Metric metric) {
+        int off = ord * DIM;
+        return switch (metric) {
+            case COSINE -> VecKernels.dot(rows, off, q, 0, DIM) * invLengths[ord] * queryInv;
+            case DOT -> VecKernels.dot(rows, off, q, 0, DIM);
+            case EUCLIDEAN -> -VecKernels.squareDistance(rows, off, q, 0, DIM);
+        };
+    }
+
+    /** Rows per parallel partition: 1024 × 1.5 KiB = 1.5 MiB, about one core's share of L2/L3. */
+    private static final int PARTITION_ROWS = 1024;
+
+    /**
+     * Exact scores of ordinals [from, to) into <code>out</code>, skipping ordinals not in
+     * <code>allowed</code> (null = all). Read lock held (by the calling search).
+     * <p>
+     * Every metric is the one dot-product kernel plus per-row constants cached at write time:
+     * cosine scales by the stored inverse length (as if the rows were stored unit-length), and
+     * Euclidean expands to 2&lt;x, q&gt; - |x|² - |q|² with the stored squared norm (good enough to
+     * rank; {@link #finishLocked} re-measures the winners). The metric is resolved once per call,
+     * outside the row loop.
+     */
+    private void scanExact(float[] q, float queryInv, Metric metric, BitSet allowed, int from, int to, TopK out) {
+        final float[] rows = this.rows;
+        switch (metric) {
+            case COSINE -> {
+                final float[] inv = invLengths;
+                for (int o = first(allowed, from); o >= 0 && o < to; o = next(allowed, o))
+                    out.offer(o, VecKernels.dot(rows, o * DIM, q, 0, DIM) * inv[o] * queryInv);
+            }
+            case DOT -> {
+                for (int o = first(allowed, from); o >= 0 && o < to; o = next(allowed, o))
+                    out.offer(o, VecKernels.dot(rows, o * DIM, q, 0, DIM));
+            }
+            case EUCLIDEAN -> {
+                final float[] sq = sqNorms;
+                final float qSq = VecKernels.dot(q, q);
+                for (int o = first(allowed, from); o >= 0 && o < to; o = next(allowed, o))
+                    out.offer(o, 2f * VecKernels.dot(rows, o * DIM, q, 0, DIM) - sq[o] - qSq);
+            }
+        }
+    }
+
+    /** First ordinal at or after <code>from</code> in <code>allowed</code> (null = all), or -1. */
+    private static int first(BitSet allowed, int from) {
+        return allowed == null ? from : allowed.nextSetBit(from);
+    }
+
+    private static int next(BitSet allowed, int o) {
+        return allowed == null ? o + 1 : allowed.nextSetBit(o + 1);
+    }
+
+    /**
+     * Offers ordinals [from, to) scoring at least <code>minScore</code>. For Euclidean, rows are
+     * first pruned by the norm bound |x - q| &gt;= | |x| - |q| |, and the rest are abandoned as soon
+     * as their partial distance passes the tighter of the radius and the worst score already kept.
+     */
+    private void scanRadius(float[] q, float queryInv, Metric metric, float minScore, int from, int to, TopK out) {
+        final BitSet live = this.live;
+        if (metric == Metric.EUCLIDEAN) {
+            final float qNorm = queryInv > 0 ? 1f / queryInv : 0f;
+            for (int o = from, off = from * DIM; o < to; o++, off += DIM) {
+                if (live != null && !live.get(o)) continue;
+                float limit = -Math.max(minScore, out.threshold());
+                float gap = sqNorms[o] * invLengths[o] - qNorm;
+                if (gap * gap > limit) continue;
+                float sq = VecKernels.squareDistanceBounded(rows, off, q, 0, DIM, limit);
+                if (sq <= limit) out.offer(o, -sq);
+            }
+            return;
+        }
+        for (int o = from; o < to; o++) {
+            if (live != null && !live.get(o)) continue;
+            float score = exactScore(o, q, queryInv, metric);
+            if (score >= minScore) out.offer(o, score);
+        }
+    }
+
+    /** Stored rows per cache block of a batched scan: 64 × 1.5 KiB = 96 KiB, kept in L2 while every query passes over it. */
+    private static final int BATCH_BLOCK_ROWS = 64;
+    private static final ThreadLocal<float[]> BATCH_DOTS = ThreadLocal.withInitial(() -> new float[BATCH_BLOCK_ROWS * 32]);
+
+    /**
+     * Exact scores of ordinals [from, to) against <code>nq</code> packed queries, one block of
+     * rows at a time through {@link VecKernels#dotBlock}. Euclidean uses
+     * |x - q|² = |x|² + |q|² - 2&lt;x, q&gt; so every metric shares the one dot product.
+     */
+    private void scanExactBatch(float[] qs, int nq, float[] qSq, float[] qInv, Metric metric,
+                                int from, int to, TopK[] outs) {
+        final BitSet live = this.live;
+        float[] dots = BATCH_DOTS.get();
+        if (dots.length < BATCH_BLOCK_ROWS * nq) BATCH_DOTS.set(dots = new float[BATCH_BLOCK_ROWS * nq]);
+        for (int first = from; first < to; first += BATCH_BLOCK_ROWS) {
+            final int n = Math.min(BATCH_BLOCK_ROWS, to - first);
+            VecKernels.dotBlock(rows, first * DIM, n, qs, nq, dots);
+            for (int r = 0; r < n; r++) {
+                final int o = first + r, base = r * nq;
+                if (live != null && !live.get(o)) continue;
+                switch (metric) {
+                    case COSINE -> {
+                        final float inv = invLengths[o];
+                        for (int q = 0; q < nq; q++) outs[q].offer(o, dots[base + q] * inv * qInv[q]);
+                    }
+                    case DOT -> {
+                        for (int q = 0; q < nq; q++) outs[q].offer(o, dots[base + q]);
+                    }
+                    case EUCLIDEAN -> {
+                        final float sq = sqNorms[o];
+                        for (int q = 0; q < nq; q++) outs[q].offer(o, 2f * dots[base + q] - sq - qSq[q]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Batched {@link #searchLocked}: fills <code>outs[q]</code> with the best k for query q, best first.
+     * Must be called under the read lock.
+     */
+    protected void searchBatchLocked(int k, List<Vec384f> queries, Metric metric, TopK[] outs) {
+        exactSearchBatchLocked(k, queries, metric, outs);
+    }
+
+    /** {@link #searchBatchLocked} over the full-precision rows, whatever a subclass does instead. Read lock held. */
+    final void exactSearchBatchLocked(int k, List<Vec384f> queries, Metric metric, TopK[] outs) {
+        final int nq = queries.size();
+        final float[] qs = new float[nq * DIM];
+        final float[] qSq = new float[nq];
+        final float[] qInv = new float[nq];
+        for (int q = 0; q < nq; q++) {
+            Vec384f query = queries.get(q);
+            query.copyInto(qs, q * DIM);
+            qSq[q] = VecKernels.dot(query.data, query.data);
+            qInv[q] = query.invLength();
+        }
+        ParallelScan.topKBatch(count, k, PARTITION_ROWS,
+                (from, to, tops) -> scanExactBatch(qs, nq, qSq, qInv, metric, from, to, tops), outs);
+        for (int q = 0; q < nq; q++) finishLocked(qs, q * DIM, metric, outs[q]);
+    }
+
+    /**
+     * Sorts a scan's selection best first. The expanded Euclidean score 2&lt;x, q&gt; - |x|² - |q|²
+     * cancels badly when |x - q| is small next to |x| and |q|, so the k winners are re-measured
+     * with the direct squared distance: O(k·384), and every index kind reports the same number.
+     * Read lock held.
+     */
+    private void finishLocked(float[] q, int qOff, Metric metric, TopK out) {
+        out.sortDescending();
+        if (metric != Metric.EUCLIDEAN) return;
+        for (int i = 0; i < out.size(); i++)
+            out.setScore(i, -VecKernels.squareDistance(rows, out.ordinal(i) * DIM, q, qOff, DIM));
+        out.resortDescending();
+    }
+
+    /**
+     * Primitive search: fills <code>out</code> with the best k (ordinal, score) pairs, best first,
+     * among the ordinals in <code>allowed</code> (null = all).
+     * Large indexes are scanned in parallel partitions (see {@link ParallelScan}).
+     * Must be called under the read lock.
+     */
+    protected void searchLocked(int k, float[] q, float queryInv, Metric metric, BitSet allowed, TopK out) {
+        ParallelScan.topK(count, k, PARTITION_ROWS,
+                (from, to, top) -> scanExact(q, queryInv, metric, allowed, from, to, top), out);
+        finishLocked(q, 0, metric, out);
+    }
+
+    /* ----------------- filtered search ----------------- */
+
+    /**
+     * Filters at most this fraction of the index (or at most k vectors) are planned as a
+     * prefiltered exact search over just the allowed rows; anything wider runs the normal
+     * search with the filter checked inside the scan.
+     */
+    public static final float PREFILTER_SELECTIVITY = 0.05f;
+
+    /** Evaluates <code>filter</code> against every live id. Read lock held. */
+    private BitSet compileLocked(KnnFilter filter) {
+        final BitSet restrict = filter.ordinals();
+        BitSet allowed = new BitSet(count);
+        for (int o = restrict == null ? 0 : restrict.nextSetBit(0); o >= 0 && o < count;
+             o = restrict == null ? o + 1 : restrict.nextSetBit(o + 1)) {
+            if (ids[o] != null && filter.accepts(ids[o])) allowed.set(o);
+        }
+        return allowed;
+    }
+
+    /** Plans and runs a filtered search into <code>out</code>, best first. Read lock held. */
+    private void searchFilteredLocked(int k, float[] q, float queryInv, Metric metric, KnnFilter filter, TopK out) {
+        final BitSet allowed = compileLocked(filter);
+        final int matches = allowed.cardinality();
+        if (matches <= k || matches <= count * PREFILTER_SELECTIVITY) {
+            out.reset(Math.min(k, matches));
+            scanExact(q, queryInv, metric, allowed, 0, count, out);
+            finishLocked(q, 0, metric, out);
+        } else {
+            searchLocked(k, q, queryInv, metric, allowed, out);
+        }
+    }
+
+    /**
+     * Exact top-k as primitive (ordinal, score) pairs, best first, written into <code>out</code>
+     * (which is reset). Map ordinals to ids with {@link #idAt(int, long)}.
+     *
+     * @return The layout stamp the ordinals belong to; pass it to {@link #idAt(int, long)}.
+     */
+    public long search(int k, Vec384f query, Metric metric, TopK out) {
+        rw.readLock().lock();
+        try {
+            if (k <= 0) out.reset(0);
+            else searchLocked(k, query.data, query.invLength(), metric, live, out);
+            return layout;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        rw.readLock().lock();
+        try {
+            TopK best = TopK.local(Math.min(k, count));
+            searchLocked(k, query.data, query.invLength(), metric, live, best);
+            // same convention as SimpleKnnIndex: Euclidean scores are negated squared distances
+            List<Pair<String, Float>> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(new Pair<>(ids[best.ordinal(i)], best.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> nearestIds(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        rw.readLock().lock();
+        try {
+            TopK best = TopK.local(Math.min(k, count));
+            searchLocked(k, query.data, query.invLength(), metric, live, best);
+            List<String> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(ids[best.ordinal(i)]);
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<List<Pair<String, Float>>> kNNBatch(int k, List<Vec384f> queries, Metric metric) {
+        List<List<Pair<String, Float>>> out = new ArrayList<>(queries.size());
+        if (k <= 0 || queries.isEmpty()) {
+            for (int q = 0; q < queries.size(); q++) out.add(new ArrayList<>());
+            return out;
+        }
+        rw.readLock().lock();
+        try {
+            TopK[] best = new TopK[queries.size()];
+            for (int q = 0; q < best.length; q++) best[q] = new TopK(Math.min(k, count));
+            searchBatchLocked(k, queries, metric, best);
+            for (TopK top : best) {
+                List<Pair<String, Float>> hits = new ArrayList<>(top.size());
+                for (int i = 0; i < top.size(); i++) hits.add(new Pair<>(ids[top.ordinal(i)], top.score(i)));
+                out.add(hits);
+            }
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Pair<String, Float>> withinRadius(Vec384f query, float radius, Metric metric, int maxCount) {
+        if (maxCount <= 0) return new ArrayList<>();
+        final float[] q = query.data;
+        final float queryInv = query.invLength();
+        final float minScore = Metric.minScore(metric, radius);
+        rw.readLock().lock();
+        try {
+            TopK hits = TopK.local(Math.min(maxCount, count));
+            ParallelScan.topK(count, maxCount, PARTITION_ROWS,
+                    (from, to, top) -> scanRadius(q, queryInv, metric, minScore, from, to, top), hits);
+            hits.sortDescending();
+            List<Pair<String, Float>> out = new ArrayList<>(hits.size());
+            for (int i = 0; i < hits.size(); i++) out.add(new Pair<>(ids[hits.ordinal(i)], hits.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric, KnnFilter filter) {
+        if (k <= 0) return new ArrayList<>();
+        rw.readLock().lock();
+        try {
+            TopK best = TopK.local(Math.min(k, count));
+            searchFilteredLocked(k, query.data, query.invLength(), metric, filter, best);
+            List<Pair<String, Float>> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(new Pair<>(ids[best.ordinal(i)], best.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.mysticism.vector;
+
+/**
+ * Immutable half-precision copy of a {@link Vec384f}: 384 shorts (768 bytes) plus a cached
+ * inverse length. Queries stay fp32; {@link #dot} and {@link #squareDistance} widen the stored
+ * lanes in-register while scoring, so a scan reads 2 bytes per lane and writes nothing.
+ */
+public final class Half384f {
+    public enum Format {
+        /** IEEE 754 binary16: 10-bit mantissa, range ±65504. Plenty for MiniLM embeddings. */
+        FP16,
+        /** bfloat16: fp32 exponent range, 7-bit mantissa; decode is a plain shift. */
+        BF16
+    }
+
+    final short[] bits;
+    final Format format;
+    private final float invLength;
+    /** False only for fp16 rows holding Inf/NaN, which the fused kernels cannot widen; those decode first. */
+    private final boolean fused;
+
+    private Half384f(short[] bits, Format format, float invLength) {
+        this.bits = bits;
+        this.format = format;
+        this.invLength = invLength;
+        this.fused = format == Format.BF16 || allFinite(bits);
+    }
+
+    private static boolean allFinite(short[] fp16) {
+        for (short h : fp16) if ((h & 0x7c00) == 0x7c00) return false;
+        return true;
+    }
+
+    public static Half384f encode(Vec384f v, Format format) {
+        final float[] src = v.data;
+        final short[] out = new short[Vec384f.DIM];
+        switch (format) {
+            case FP16 -> { for (int n = 0; n < Vec384f.DIM; n++) out[n] = Float.floatToFloat16(src[n]); }
+            case BF16 -> { for (int n = 0; n < Vec384f.DIM; n++) out[n] = toBf16(src[n]); }
+        }
+        // length of what we actually stored, so cosine stays consistent with the decoded lanes
+        float[] decoded = new float[Vec384f.DIM];
+        decode(out, 0, decoded, 0, Vec384f.DIM, format);
+        float len = (float) Math.sqrt(VecKernels.dot(decoded, decoded));
+        return new Half384f(out, format, len > 0 ? 1f / len : 0f);
+    }
+
+    /** Decodes <code>len</code> half lanes from <code>src[so..]</code> into fp32 <code>dst[doff..]</code>. */
+    static void decode(short[] src, int so, float[] dst, int doff, int len, Format format) {
+        switch (format) {
+            case FP16 -> { for (int n = 0; n < len; n++) dst[doff + n] = Float.float16ToFloat(src[so + n]); }
+            case BF16 -> { for (int n = 0; n < len; n++) dst[doff + n] = Float.intBitsToFloat(src[so + n] << 16); }
+        }
+    }
+
+    /** Round-to-nearest-even truncation of an fp32 to its upper 16 bits. */
+    static short toBf16(float f) {
+        int b = Float.floatToRawIntBits(f);
+        if ((b & 0x7fffffff) > 0x7f800000) return (short) ((b >>> 16) | 0x40); // keep NaN a NaN
+        b += 0x7fff + ((b >>> 16) & 1);
+        return (short) (b >>> 16);
+    }
+
+    public void decodeInto(float[] dst) {
+        decode(this.bits, 0, dst, 0, Vec384f.DIM, this.format);
+    }
+
+    /** &lt;this, q&gt; against an fp32 query, without decoding this row. */
+    public float dot(float[] q) {
+        if (fused) return VecKernels.dotHalf(this.bits, 0, this.format, q, 0, Vec384f.DIM);
+        return VecKernels.dot(this.decode().data, q);
+    }
+
+    /** |this - q|² against an fp32 query, without decoding this row. */
+    public float squareDistance(float[] q) {
+        if (fused) return VecKernels.squareDistanceHalf(this.bits, 0, this.format, q, 0, Vec384f.DIM);
+        return VecKernels.squareDistance(this.decode().data, q);
+    }
+
+    /** @return a frozen fp32 copy. */
+    public Vec384f decode() {
+        float[] out = new float[Vec384f.DIM];
+        this.decodeInto(out);
+        return new Vec384f(out, this.invLength).freeze();
+    }
+
+    public float invLength() {
+        return this.invLength;
+    }
+
+    public Format format() {
+        return this.format;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.mysticism.vector;
+
+import ai.djl.util.Pair;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Brute-force kNN over {@link Half384f} storage: half the bytes of {@link SimpleKnnIndex}
+ * per vector, and half the memory traffic per scan. Stored lanes are widened to fp32
+ * in-register by the fused half kernels, so no decoded copy of a row is ever written.
+ */
+public class HalfKnnIndex implements KnnIndex {
+    private final HashMap<String, Half384f> data = new HashMap<>();
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final Half384f.Format format;
+
+    /** Per-thread ordinal -> key table for the scan in progress; emptied after every search. */
+    private static final ThreadLocal<ArrayList<String>> KEYS = ThreadLocal.withInitial(ArrayList::new);
+
+    public HalfKnnIndex(Half384f.Format format) {
+        this.format = format;
+    }
+
+    public Half384f.Format format() {
+        return format;
+    }
+
+    public int size() {
+        rw.readLock().lock();
+        try { return data.size(); }
+        finally { rw.readLock().unlock(); }
+    }
+
+    public void upsert(String id, Vec384f v) {
+        Half384f h = Half384f.encode(v, format); // encode outside the lock
+        rw.writeLock().lock();
+        try { this.data.put(id, h); }
+        finally { rw.writeLock().unlock(); }
+    }
+
+    @Override
+    public void upsertAll(Map<String, Vec384f> vectors) {
+        if (vectors.isEmpty()) return;
+        // encode outside the lock
+        HashMap<String, Half384f> encoded = HashMap.newHashMap(vectors.size());
+        vectors.forEach((id, v) -> encoded.put(id, Half384f.encode(v, format)));
+        rw.writeLock().lock();
+        try { this.data.putAll(encoded); }
+        finally { rw.writeLock().unlock(); }
+    }
+
+    public Vec384f get(String id) {
+        Half384f h;
+        rw.readLock().lock();
+        try { h = this.data.get(id); }
+        finally { rw.readLock().unlock(); }
+        return h != null ? h.decode() : null;
+    }
+
+    public void deltaUpdate(String id, Vec384f delta) {
+        rw.writeLock().lock();
+        try {
+            this.data.compute(id, (k, old) ->
+                    Half384f.encode((old != null ? old.decode().mutableCopy() : Vec384f.ZERO()).add(delta), format));
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        rw.writeLock().lock();
+        try { return this.data.remove(id) != null; }
+        finally { rw.writeLock().unlock(); }
+    }
+
+    /**
+     * Scores every entry into this thread's {@link TopK}, best first; the ordinals index
+     * <code>keys</code>, which is refilled in map order. Read lock held.
+     */
+    private TopK searchLocked(int k, Vec384f query, Metric metric, ArrayList<String> keys) {
+        final float[] q = query.data;
+        final float queryInv = query.invLength();
+        final TopK best = TopK.local(Math.min(k, data.size()));
+
+        keys.clear();
+        for (Map.Entry<String, Half384f> entry : data.entrySet()) {
+            Half384f h = entry.getValue();
+            float score = switch (metric) {
+                case COSINE -> h.dot(q) * h.invLength() * queryInv;
+                case DOT -> h.dot(q);
+                // the selector keeps the biggest scores, so flip Euclidean: smaller = closer
+                case EUCLIDEAN -> -1.f * h.squareDistance(q);
+            };
+            best.offer(keys.size(), score);
+            keys.add(entry.getKey());
+        }
+        best.sortDescending();
+        return best;
+    }
+
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final ArrayList<String> keys = KEYS.get();
+        rw.readLock().lock();
+        try {
+            final TopK best = searchLocked(k, query, metric, keys);
+            List<Pair<String, Float>> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(new Pair<>(keys.get(best.ordinal(i)), best.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+            keys.clear();
+        }
+    }
+
+    @Override
+    public List<String> nearestIds(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final ArrayList<String> keys = KEYS.get();
+        rw.readLock().lock();
+        try {
+            final TopK best = searchLocked(k, query, metric, keys);
+            List<String> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(keys.get(best.ordinal(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+            keys.clear();
+        }
+    }
+
+    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
+        rw.writeLock().lock();
+        try {
+            for (String key : affectedKeys)
+                this.data.compute(key, (k, old) ->
+                        Half384f.encode((old != null ? old.decode().mutableCopy() : Vec384f.ZERO()).converge(target, factor), format));
+        } finally { rw.writeLock().unlock(); }
+    }
+
+    public void forEach(BiConsumer<String, Vec384f> consumer) {
+        List<Map.Entry<String, Half384f>> snapshot;
+        rw.readLock().lock();
+        try {
+            snapshot = new ArrayList<>(data.entrySet());
+        } finally {
+            rw.readLock().unlock();
+        }
+        for (var e : snapshot) consumer.accept(e.getKey(), e.getValue().decode());
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.mysticism.vector;
+
+import java.util.Arrays;
+
+/**
+ * Keeps &lt;obj, i/j/k&gt; for a fixed row-major matrix of objects and carries it across
+ * {@link BasisIntegrator384f} steps without re-reading the 384-d rows.
+ * <p>
+ * A step rewrites each axis as a combination of the old (i, j, k, a), a = attunement, so the
+ * new coordinates are the same combination of the old coordinates and &lt;obj, a&gt;. That last
+ * dot product is cached per attunement, so while the attunement holds still a rotation costs
+ * O(1) per object instead of three 384-d sweeps.
+ * <p>
+ * Rounding error is tracked as a running bound; past {@link #DRIFT_TOLERANCE} or
+ * {@link #MAX_UPDATES} rotations the projector reports itself stale and the caller reprojects
+ * with {@link #reset}.
+ */
+public final class IncrementalProjector {
+    private static final int DIM = Vec384f.DIM;
+
+    /** Absolute error bound (latent units) on a coordinate before a full reprojection. */
+    public static final float DRIFT_TOLERANCE = 1e-4f;
+    /** Rotations between full reprojections, whatever the bound says. */
+    public static final int MAX_UPDATES = 600;
+    /** Per-operation relative rounding error assumed for the bound (a few float ulps). */
+    private static final float EPS = 4e-7f;
+
+    private float[] objs = null;
+    private int n = 0;
+    /** &lt;obj, i&gt;, &lt;obj, j&gt;, &lt;obj, k&gt; per row. */
+    private float[] coords = new float[0];
+    /** &lt;obj, a&gt; per row, valid for the attunement copied into {@link #att}. */
+    private float[] objAtt = new float[0];
+    private final float[] att = new float[DIM];
+    private boolean objAttValid = false;
+
+    /** The basis the coordinates currently correspond to, or null when stale. */
+    private Basis384f tracked = null;
+    private int updates = 0;
+    private float drift = 0f;
+
+    /** @return true if the coordinates are current for <code>objs</code> under <code>basis</code>. */
+    public boolean isTracking(float[] objs, Basis384f basis) {
+        return tracked != null && tracked == basis && this.objs == objs;
+    }
+
+    public void invalidate() {
+        tracked = null;
+    }
+
+    /** Full reprojection of <code>n</code> rows of <code>objs</code> (kept by reference, not copied). */
+    public void reset(float[] objs, int n, Basis384f basis) {
+        if (coords.length < 3 * n) coords = new float[3 * n];
+        if (objAtt.length < n) objAtt = new float[n];
+        VecKernels.projectRows(objs, n, basis.i.data, basis.j.data, basis.k.data, 0f, 0f, 0f, 1f, coords);
+        this.objs = objs;
+        this.n = n;
+        this.objAttValid = false;
+        this.tracked = basis;
+        this.updates = 0;
+        this.drift = 0f;
+    }
+
+    /**
+     * Follows one basis step: <code>from</code> must be the basis the coordinates were tracking and
+     * <code>to</code> the basis after the step. <code>rotation</code> is the 3×4 matrix filled by
+     * {@link BasisIntegrator384f#step(Basis384f, Vec384f, double, double, double, float, float[])},
+     * or null if the step left the axes unchanged. Anything else marks the projector stale.
+     */
+    public void rotate(Basis384f from, float[] rotation, Vec384f attunement, Basis384f to) {
+        if (tracked == null || tracked != from) {
+            tracked = null;
+            return;
+        }
+        if (rotation == null) {
+            tracked = to;
+            return;
+        }
+        if (++updates > MAX_UPDATES) {
+            tracked = null;
+            return;
+        }
+
+        if (!objAttValid || !Arrays.equals(att, attunement.data)) {
+            System.arraycopy(attunement.data, 0, att, 0, DIM);
+            for (int r = 0; r < n; r++) objAtt[r] = VecKernels.dot(objs, r * DIM, att, 0, DIM);
+            objAttValid = true;
+        }
+
+        final float[] c = rotation;
+        float gain = 0f, maxAbs = 0f;
+        for (int v = 0; v < 3; v++)
+            gain = Math.max(gain, Math.abs(c[4 * v]) + Math.abs(c[4 * v + 1]) + Math.abs(c[4 * v + 2]));
+        for (int r = 0; r < n; r++) {
+            int o = 3 * r;
+            float x = coords[o], y = coords[o + 1], z = coords[o + 2], a = objAtt[r];
+            coords[o] = c[0] * x + c[1] * y + c[2] * z + c[3] * a;
+            coords[o + 1] = c[4] * x + c[5] * y + c[6] * z + c[7] * a;
+            coords[o + 2] = c[8] * x + c[9] * y + c[10] * z + c[11] * a;
+            maxAbs = Math.max(maxAbs, Math.max(Math.abs(x) + Math.abs(y) + Math.abs(z), Math.abs(a)));
+        }
+
+        // old error carried through the 3×3 part, plus this update's rounding
+        drift = gain * drift + EPS * maxAbs * (gain + Math.abs(c[3]) + Math.abs(c[7]) + Math.abs(c[11]));
+        tracked = drift > DRIFT_TOLERANCE ? null : to;
+    }
+
+    /**
+     * Writes <code>scale * (&lt;obj - you, i/j/k&gt;)</code> for every row into <code>out[3r..3r+2]</code>,
+     * the same layout as {@link Projection384f#projectAll}. Only valid while tracking.
+     *
+     * @return The array written to (reallocated if <code>out</code> is too small).
+     */
+    public float[] project(Vec384f you, float scale, float[] out) {
+        if (tracked == null) throw new IllegalStateException("projector is stale; reset() it first");
+        if (out == null || out.length < 3 * n) out = new float[3 * n];
+        final float yx = VecKernels.dot(you.data, tracked.i.data);
+        final float yy = VecKernels.dot(you.data, tracked.j.data);
+        final float yz = VecKernels.dot(you.data, tracked.k.data);
+        for (int r = 0; r < n; r++) {
+            int o = 3 * r;
+            out[o] = (coords[o] - yx) * scale;
+            out[o + 1] = (coords[o + 1] - yy) * scale;
+            out[o + 2] = (coords[o + 2] - yz) * scale;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.mysticism.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Scalar-quantized kNN: each vector also gets an int8 code row with a per-vector scale and
+ * offset (x ≈ offset + scale * code, code ∈ [-127, 127], spanning the vector's [min, max]).
+ * The first pass runs integer dot products over the codes (a quarter of the fp32 bytes), then
+ * the shortlist is re-ranked exactly.
+ * <p>
+ * The query is quantized symmetrically (q ≈ qScale * qCode), so
+ * &lt;x, q&gt; ≈ scale * qScale * &lt;code, qCode&gt; + offset * Σq, where Σq is taken once per query.
+ * <p>
+ * Per-vector (not per-dimension) parameters keep every code valid as new vectors arrive, so
+ * nothing ever needs retraining.
+ */
+public class Int8KnnIndex extends RerankingKnnIndex {
+    private byte[] codes = new byte[64 * DIM];
+    private float[] scales = new float[64];
+    private float[] offsets = new float[64];
+
+    private static final ThreadLocal<byte[]> QUERY_CODES = ThreadLocal.withInitial(() -> new byte[DIM]);
+
+    public Int8KnnIndex() {
+        this(4, 32);
+    }
+
+    public Int8KnnIndex(int shortlistFactor, int shortlistSlack) {
+        super(shortlistFactor, shortlistSlack);
+    }
+
+    /** Symmetrically quantizes <code>src[so..so+DIM)</code> into <code>dst[doff..]</code>; returns the scale. */
+    static float quantize(float[] src, int so, byte[] dst, int doff) {
+        float max = 0f;
+        for (int n = 0; n < DIM; n++) max = Math.max(max, Math.abs(src[so + n]));
+        if (max == 0f) {
+            Arrays.fill(dst, doff, doff + DIM, (byte) 0);
+            return 0f;
+        }
+        float inv = 127f / max;
+        for (int n = 0; n < DIM; n++) dst[doff + n] = (byte) Math.round(src[so + n] * inv);
+        return max / 127f;
+    }
+
+    /**
+     * Quantizes row <code>ord</code> over its own [min, max]: the offset is the midpoint, and the
+     * 255 codes span the range, so a vector that is not centred on zero keeps its full resolution.
+     */
+    private void quantizeRow(int ord) {
+        final int off = ord * DIM;
+        float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+        for (int n = 0; n < DIM; n++) {
+            min = Math.min(min, rows[off + n]);
+            max = Math.max(max, rows[off + n]);
+        }
+        final float offset = 0.5f * (min + max);
+        offsets[ord] = offset;
+        if (max == min) {
+            Arrays.fill(codes, off, off + DIM, (byte) 0);
+            scales[ord] = 0f;
+            return;
+        }
+        final float inv = 254f / (max - min);
+        for (int n = 0; n < DIM; n++) {
+            int c = Math.round((rows[off + n] - offset) * inv);
+            codes[off + n] = (byte) Math.max(-127, Math.min(127, c));
+        }
+        scales[ord] = (max - min) / 254f;
+    }
+
+    @Override
+    protected void growSketch(int capacity) {
+        codes = Arrays.copyOf(codes, capacity * DIM);
+        scales = Arrays.copyOf(scales, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+    }
+
+    @Override
+    protected void encode(int ord) {
+        quantizeRow(ord);
+    }
+
+    @Override
+    protected void moveSketch(int from, int to) {
+        System.arraycopy(codes, from * DIM, codes, to * DIM, DIM);
+        scales[to] = scales[from];
+        offsets[to] = offsets[from];
+    }
+
+    @Override
+    protected void scanSketch(float[] query, Metric metric, BitSet allowed, int from, int to, TopK shortlist) {
+        final byte[] qc = QUERY_CODES.get();
+        final float qs = quantize(query, 0, qc, 0);
+        final float qSq = VecKernels.dot(query, query);
+        final float qInv = qSq > 0 ? (float) (1.0 / Math.sqrt(qSq)) : 0f;
+        float qSum = 0f;
+        for (int n = 0; n < DIM; n++) qSum += query[n];
+
+        for (int o = from; o < to; o++) {
+            if (allowed != null && !allowed.get(o)) continue;
+            float dot = VecKernels.dotInt8(codes, o * DIM, qc, 0, DIM) * scales[o] * qs + offsets[o] * qSum;
+            float score = switch (metric) {
+                case COSINE -> dot * invLengths[o] * qInv;
+                case DOT -> dot;
+                // -|x - q|² = -(|x|² + |q|² - 2<x,q>)
+                case EUCLIDEAN -> 2f * dot - sqNorms[o] - qSq;
+            };
+            shortlist.offer(o, score);
+        }
+    }
+}
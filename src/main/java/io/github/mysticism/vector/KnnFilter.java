@@ -0,0 +1,63 @@
+package io.github.mysticism.vector;
+
+import java.util.BitSet;
+
+/**
+ * Restricts a kNN search to some of the stored ids; see {@link KnnIndex#kNN(int, Vec384f, Metric, KnnFilter)}.
+ * <p>
+ * Indexes with ordinal storage evaluate the filter once per query into a bitset of allowed
+ * ordinals and skip everything else during the scan, instead of over-fetching and discarding.
+ */
+public interface KnnFilter {
+    /** Whether <code>id</code> may appear in the results. */
+    boolean accepts(String id);
+
+    /**
+     * Optional allow-list of {@link FlatKnnIndex} ordinals, intersected with {@link #accepts}.
+     * Indexes without ordinals reject such a filter with an IllegalArgumentException rather than
+     * answer unfiltered. Null = no ordinal restriction.
+     */
+    default BitSet ordinals() {
+        return null;
+    }
+
+    /** Ids starting with <code>prefix</code>. */
+    static KnnFilter idPrefix(String prefix) {
+        return id -> id.startsWith(prefix);
+    }
+
+    /** Ids in the namespace <code>namespace</code>, i.e. <code>namespace:path</code>. */
+    static KnnFilter namespace(String namespace) {
+        return idPrefix(namespace + ":");
+    }
+
+    /** Every id except <code>excluded</code>. */
+    static KnnFilter excluding(String excluded) {
+        return id -> !id.equals(excluded);
+    }
+
+    /** Only the given {@link FlatKnnIndex} ordinals (see {@link FlatKnnIndex#search}); FlatKnnIndex and subclasses only. */
+    static KnnFilter ordinals(BitSet allowed) {
+        return new KnnFilter() {
+            public boolean accepts(String id) { return true; }
+            public BitSet ordinals() { return allowed; }
+        };
+    }
+
+    /** Ids accepted by both filters. */
+    default KnnFilter and(KnnFilter other) {
+        final KnnFilter self = this;
+        final BitSet a = self.ordinals(), b = other.ordinals();
+        final BitSet both;
+        if (a == null) both = b;
+        else if (b == null) both = a;
+        else {
+            both = (BitSet) a.clone();
+            both.and(b);
+        }
+        return new KnnFilter() {
+            public boolean accepts(String id) { return self.accepts(id) && other.accepts(id); }
+            public BitSet ordinals() { return both; }
+        };
+    }
+}
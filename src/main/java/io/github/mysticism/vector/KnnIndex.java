@@ -2,7 +2,9 @@ package io.github.mysticism.vector;
 
 import ai.djl.util.Pair;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 
 public interface KnnIndex {
@@ -14,6 +16,19 @@ public interface KnnIndex {
      */
     void upsert(String id, Vec384f v);
 
+    /**
+     * Upsert every entry of <code>vectors</code>, e.g. when loading a saved index. Must be threadsafe.
+     * <p>
+     * The default upserts one at a time; implementations take their write lock once, size their
+     * storage for the whole batch up front and build derived structures (sketches, codebooks)
+     * once at the end instead of incrementally.
+     *
+     * @param vectors The ids and vectors to upsert.
+     */
+    default void upsertAll(Map<String, Vec384f> vectors) {
+        vectors.forEach(this::upsert);
+    }
+
     /**
      * Provide a delta update to a particular vector.
      *
@@ -22,12 +37,21 @@ public interface KnnIndex {
      */
     void deltaUpdate(String id, Vec384f delta);
 
+    /**
+     * Remove the vector stored under <code>id</code>, if any. Must be threadsafe.
+     *
+     * @param id The string id to remove.
+     * @return Whether a vector was stored under <code>id</code>.
+     */
+    boolean remove(String id);
+
     /**
      * Get a vector under the id <code>id</code> from the kNN Index.
      * <p/>
      * This is expected to return <code>null</code> if the id does not exist.
      * @param id The id to get.
-     * @return A copy of the <code>Vec384f</code> under the given <code>id</code>.
+     * @return The frozen (read-only) <code>Vec384f</code> under the given <code>id</code>;
+     * take {@link Vec384f#mutableCopy()} before modifying it.
      */
     Vec384f get(String id);
 
@@ -49,10 +73,108 @@ public interface KnnIndex {
      * @param query The query vector.
      * @param metric The metric used to evaluate closeness.
      * @return A list of pairs containing up to the K nearest
-     * keys with their associated scores according to the provided metric.
+     * keys with their associated scores according to the provided metric, closest first.
      */
     List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric);
 
+    /**
+     * {@link #kNN(int, Vec384f, Metric)} over only the ids <code>filter</code> accepts.
+     * <p>
+     * The default over-fetches from the unfiltered search, doubling until k accepted ids are
+     * found; indexes with ordinal storage push the filter into the scan instead.
+     *
+     * @param k The number of neighbors to return.
+     * @param query The query vector.
+     * @param metric The metric used to evaluate closeness.
+     * @param filter The ids that may be returned.
+     * @return Up to <code>k</code> accepted keys with their scores, closest first.
+     * @throws IllegalArgumentException If <code>filter</code> restricts {@link KnnFilter#ordinals()}
+     * and this index has no ordinals to apply it to.
+     */
+    default List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric, KnnFilter filter) {
+        if (filter.ordinals() != null)
+            throw new IllegalArgumentException(getClass().getSimpleName() + " has no ordinals; cannot apply an ordinal filter");
+        List<Pair<String, Float>> out = new ArrayList<>();
+        if (k <= 0) return out;
+        final int size = size();
+        for (int fetch = Math.min(size, 2 * k); ; fetch = (int) Math.min(size, 2L * fetch)) {
+            out.clear();
+            for (Pair<String, Float> hit : kNN(fetch, query, metric))
+                if (filter.accepts(hit.getKey())) out.add(hit);
+            if (out.size() >= k || fetch >= size) break;
+        }
+        return out.size() > k ? new ArrayList<>(out.subList(0, k)) : out;
+    }
+
+    /**
+     * Same search as {@link #kNN(int, Vec384f, Metric)}, returning only the ids, in the same order.
+     * Implementations with primitive result paths can skip building the (id, score) pairs.
+     *
+     * @param k The number of neighbors to return.
+     * @param query The query vector.
+     * @param metric The metric used to evaluate closeness.
+     * @return Up to <code>k</code> ids of the nearest neighbors.
+     */
+    default List<String> nearestIds(int k, Vec384f query, Metric metric) {
+        List<Pair<String, Float>> hits = kNN(k, query, metric);
+        List<String> out = new ArrayList<>(hits.size());
+        for (Pair<String, Float> hit : hits) out.add(hit.getKey());
+        return out;
+    }
+
+    /**
+     * Find every stored vector within <code>radius</code> of the query, closest first.
+     * <p>
+     * The radius is a distance under <code>metric</code>: Euclidean distance, cosine distance
+     * (1 - cos), or the negated dot product. Scores follow {@link #kNN(int, Vec384f, Metric)}
+     * (bigger = closer; negated squared distances for Euclidean).
+     *
+     * @param query The query vector.
+     * @param radius The largest distance to include.
+     * @param metric The metric used to evaluate closeness.
+     * @return All keys within range with their scores, closest first.
+     */
+    default List<Pair<String, Float>> withinRadius(Vec384f query, float radius, Metric metric) {
+        return withinRadius(query, radius, metric, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@link #withinRadius(Vec384f, float, Metric)}, keeping only the <code>maxCount</code> closest.
+     * Implementations prune candidates against the radius (and, once <code>maxCount</code> are
+     * held, against the worst kept one) without finishing their distance computation.
+     *
+     * @param query The query vector.
+     * @param radius The largest distance to include.
+     * @param metric The metric used to evaluate closeness.
+     * @param maxCount The most results to return.
+     * @return Up to <code>maxCount</code> keys within range with their scores, closest first.
+     */
+    default List<Pair<String, Float>> withinRadius(Vec384f query, float radius, Metric metric, int maxCount) {
+        final float minScore = Metric.minScore(metric, radius);
+        List<Pair<String, Float>> out = new ArrayList<>();
+        for (Pair<String, Float> hit : kNN(Math.min(maxCount, size()), query, metric)) {
+            if (hit.getValue() < minScore) break; // closest first: the rest are further still
+            out.add(hit);
+        }
+        return out;
+    }
+
+    /**
+     * Runs {@link #kNN(int, Vec384f, Metric)} for every query in <code>queries</code>.
+     * Implementations over contiguous storage score blocks of queries against blocks of
+     * stored vectors together, so the index is read once for the whole batch.
+     *
+     * @param k The number of neighbors to return per query.
+     * @param queries The query vectors.
+     * @param metric The metric used to evaluate closeness.
+     * @return One result list per query, in the order of <code>queries</code>.
+     */
+    default List<List<Pair<String, Float>>> kNNBatch(int k, List<Vec384f> queries, Metric metric) {
+        List<List<Pair<String, Float>>> out = new ArrayList<>(queries.size());
+        for (Vec384f query : queries) out.add(kNN(k, query, metric));
+        return out;
+    }
+
     /**
      * Converge a list of vectors on a specific target, with a percentage-based factor.
      *
@@ -64,7 +186,7 @@ public interface KnnIndex {
     void converge(List<String> affectedKeys, Vec384f target, float factor);
 
     /**
-     * Immutable forEach. Used for PersistentState.
+     * Immutable forEach over frozen vectors. Used for PersistentState.
      *
      * @param consumer The consumer used for iteration.
      */
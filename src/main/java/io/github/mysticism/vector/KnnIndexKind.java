@@ -0,0 +1,60 @@
+package io.github.mysticism.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * The {@link KnnIndex} implementations a state can be backed by.
+ * <p>
+ * Each PersistentState picks its kind from a system property (e.g.
+ * <code>-Dmysticism.item_index=FP16</code>), falling back to its own default.
+ */
+public enum KnnIndexKind {
+    /** fp32 vectors in a HashMap; exact. */
+    SIMPLE(SimpleKnnIndex::new),
+    /** fp32 rows in one row-major array with an id dictionary; exact. */
+    FLAT(FlatKnnIndex::new),
+    /** IEEE half-precision storage, widened to fp32 in-register while scoring. */
+    FP16(() -> new HalfKnnIndex(Half384f.Format.FP16)),
+    /** bfloat16 storage, widened to fp32 in-register while scoring. */
+    BF16(() -> new HalfKnnIndex(Half384f.Format.BF16)),
+    /** int8 codes for the first pass, exact fp32 re-ranking of the shortlist. */
+    INT8(Int8KnnIndex::new),
+    /** 1-bit sign sketches scanned by Hamming distance, exact fp32 re-ranking of the shortlist. */
+    BINARY(BinaryKnnIndex::new),
+    /** Product-quantized codes (48 bytes per vector) once the index passes the training threshold. */
+    PQ(PqKnnIndex::new),
+    /** 64-d PCA projections for the first pass, exact fp32 re-ranking of the shortlist. */
+    PCA(PcaKnnIndex::new),
+    /** fp32 rows in off-heap slabs, scanned block by block; exact. */
+    ARENA(ArenaKnnIndex::new);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-KnnIndexKind");
+
+    private final Supplier<KnnIndex> factory;
+
+    KnnIndexKind(Supplier<KnnIndex> factory) {
+        this.factory = factory;
+    }
+
+    public KnnIndex create() {
+        return factory.get();
+    }
+
+    /** @return the kind named by system property <code>property</code>, or <code>fallback</code>. */
+    public static KnnIndexKind fromProperty(String property, KnnIndexKind fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) return fallback;
+        try {
+            KnnIndexKind kind = valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            LOGGER.info("{} = {}", property, kind);
+            return kind;
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown index kind '{}' for {}; using {}", raw, property, fallback);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.mysticism.vector;
+
+import ai.djl.util.Pair;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recall@k of an approximate/compressed index against an exact reference index.
+ * Used by <code>/embedding recall</code> to check a {@link KnnIndexKind} before switching a state to it.
+ */
+public final class KnnRecall {
+    private KnnRecall() {}
+
+    /** Copies every vector of <code>source</code> into a fresh index of the given kind. */
+    public static KnnIndex copyOf(KnnIndex source, KnnIndexKind kind) {
+        KnnIndex out = kind.create();
+        source.forEach(out::upsert);
+        return out;
+    }
+
+    /**
+     * @return the mean fraction of the exact top-<code>k</code> ids that <code>candidate</code>
+     * also returns in its top-<code>k</code>, over all queries (1.0 = identical neighbour sets).
+     */
+    public static float recallAtK(KnnIndex exact, KnnIndex candidate, List<Vec384f> queries, int k, Metric metric) {
+        if (queries.isEmpty() || k <= 0) return 1f;
+        double sum = 0;
+        for (Vec384f q : queries) {
+            List<Pair<String, Float>> truth = exact.kNN(k, q, metric);
+            if (truth.isEmpty()) { sum += 1; continue; }
+            Set<String> got = new HashSet<>();
+            for (var p : candidate.kNN(k, q, metric)) got.add(p.getKey());
+            int hits = 0;
+            for (var p : truth) if (got.contains(p.getKey())) hits++;
+            sum += (double) hits / truth.size();
+        }
+        return (float) (sum / queries.size());
+    }
+}
@@ -1,3 +1,17 @@
 package io.github.mysticism.vector;
 
-public enum Metric { COSINE, DOT, EUCLIDEAN }
+public enum Metric {
+    COSINE, DOT, EUCLIDEAN;
+
+    /**
+     * Lowest kNN score (bigger = closer) still within distance <code>radius</code>:
+     * 1 - radius for cosine, -radius for dot, -radius² for Euclidean.
+     */
+    public static float minScore(Metric metric, float radius) {
+        return switch (metric) {
+            case COSINE -> 1f - radius;
+            case DOT -> -radius;
+            case EUCLIDEAN -> -radius * radius;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.mysticism.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Partitioned top-k scans on a small shared ForkJoin pool.
+ * <p>
+ * Below {@link #THRESHOLD} ordinals (or on a single spare core) a scan simply runs on the
+ * calling thread. Above it, [0, n) is cut into fixed-size partitions; each partition fills its
+ * own bounded {@link TopK} on a pool worker and the results are merged on the caller.
+ * <p>
+ * The pool is capped at {@link #PARALLELISM} low-priority daemon threads (cores - 1 by default,
+ * at most 4) so a burst of queries can never take every core from the server thread.
+ * Tune with <code>-Dmysticism.knn.parallel_threshold</code> and <code>-Dmysticism.knn.parallelism</code>.
+ */
+final class ParallelScan {
+    private static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-ParallelScan");
+
+    static final int THRESHOLD = Integer.getInteger("mysticism.knn.parallel_threshold", 16384);
+    static final int PARALLELISM = Math.max(1, Integer.getInteger("mysticism.knn.parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+    private static final ForkJoinPool POOL = PARALLELISM > 1 ? new ForkJoinPool(PARALLELISM, pool -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("Mysticism-KnnScan-" + t.getPoolIndex());
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    }, null, false) : null;
+
+    static {
+        LOGGER.info("kNN scans go parallel above {} vectors on {} thread(s)", THRESHOLD, PARALLELISM);
+    }
+
+    private ParallelScan() {}
+
+    /** Scores ordinals <code>[from, to)</code> into <code>out</code>. Must be safe to run concurrently on disjoint ranges. */
+    @FunctionalInterface
+    interface RangeScan {
+        void scan(int from, int to, TopK out);
+    }
+
+    /** Scores ordinals <code>[from, to)</code> against a batch of queries, one <code>out</code> per query. */
+    @FunctionalInterface
+    interface BatchRangeScan {
+        void scan(int from, int to, TopK[] outs);
+    }
+
+    /**
+     * Resets <code>out</code> to capacity min(k, n) and fills it with the best of ordinals [0, n),
+     * unsorted. The caller's read lock covers the workers too: they run strictly inside this call.
+     *
+     * @param partitionRows Ordinals per partition; pick so one partition's data fits in L2/L3.
+     */
+    static void topK(int n, int k, int partitionRows, RangeScan scan, TopK out) {
+        out.reset(Math.min(k, n));
+        if (n == 0 || k <= 0) return;
+        if (POOL == null || n < THRESHOLD || n <= partitionRows) {
+            scan.scan(0, n, out);
+            return;
+        }
+
+        List<ForkJoinTask<TopK>> tasks = new ArrayList<>((n + partitionRows - 1) / partitionRows);
+        for (int from = 0; from < n; from += partitionRows) {
+            final int f = from, t = Math.min(n, from + partitionRows);
+            tasks.add(POOL.submit(() -> {
+                TopK local = new TopK(Math.min(k, t - f));
+                scan.scan(f, t, local);
+                return local;
+            }));
+        }
+        for (ForkJoinTask<TopK> task : tasks) {
+            TopK local = task.join();
+            for (int i = 0; i < local.size(); i++) out.offer(local.ordinal(i), local.score(i));
+        }
+    }
+
+    /**
+     * Batched {@link #topK}: resets every <code>outs[q]</code> to capacity min(k, n) and fills it
+     * with the best of ordinals [0, n) for query q, unsorted. Partitions get one bounded heap per query.
+     */
+    static void topKBatch(int n, int k, int partitionRows, BatchRangeScan scan, TopK[] outs) {
+        for (TopK out : outs) out.reset(Math.min(k, n));
+        if (n == 0 || k <= 0 || outs.length == 0) return;
+        if (POOL == null || n < THRESHOLD || n <= partitionRows) {
+            scan.scan(0, n, outs);
+            return;
+        }
+
+        final int nq = outs.length;
+        List<ForkJoinTask<TopK[]>> tasks = new ArrayList<>((n + partitionRows - 1) / partitionRows);
+        for (int from = 0; from < n; from += partitionRows) {
+            final int f = from, t = Math.min(n, from + partitionRows);
+            tasks.add(POOL.submit(() -> {
+                TopK[] locals = new TopK[nq];
+                for (int q = 0; q < nq; q++) locals[q] = new TopK(Math.min(k, t - f));
+                scan.scan(f, t, locals);
+                return locals;
+            }));
+        }
+        for (ForkJoinTask<TopK[]> task : tasks) {
+            TopK[] locals = task.join();
+            for (int q = 0; q < nq; q++) {
+                TopK local = locals[q], out = outs[q];
+                for (int i = 0; i < local.size(); i++) out.offer(local.ordinal(i), local.score(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package io.github.mysticism.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PCA shadow index: every vector also keeps its coordinates along the top
+ * {@link #COMPONENTS} principal axes of the stored data. The first pass scans those
+ * 64-float rows (a sixth of the full width), then the shortlist is re-ranked exactly.
+ * <p>
+ * Mean and second moments are maintained incrementally on every write. Once enough rows
+ * have changed, the principal axes are refitted by orthogonal iteration, warm-started from
+ * the previous axes, on a background thread, and all reduced rows are re-projected there
+ * before the new basis is swapped in. Until the first fit completes (at least
+ * {@link #MIN_FIT} vectors) no basis exists and the first pass is exact.
+ */
+public class PcaKnnIndex extends RerankingKnnIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-PcaKnnIndex");
+    public static final int COMPONENTS = 64;
+    /** Vectors needed before the first fit. */
+    public static final int MIN_FIT = 2 * COMPONENTS;
+    /** Changed rows before a refit: max(REFIT_MIN, size / REFIT_DIVISOR). */
+    private static final int REFIT_MIN = 256;
+    private static final int REFIT_DIVISOR = 4;
+    private static final int COLD_ITERS = 10;
+    private static final int WARM_ITERS = 3;
+
+    /** Running sums over all counted rows: Σx and the upper triangle of Σxxᵀ. */
+    private final double[] sum = new double[DIM];
+    private final double[] moment = new double[DIM * DIM];
+    private boolean[] counted = new boolean[64];
+    private int n = 0;
+    private int changedSinceFit = 0;
+
+    /** components[c * DIM + d]: orthonormal principal axes, or null before the first fit. */
+    private float[] components = null;
+    private float[] mean = new float[DIM];
+    /** <components_c, mean> */
+    private float[] meanProj = new float[COMPONENTS];
+    /** COMPONENTS floats per ordinal: <x - mean, components_c>. */
+    private float[] reduced = new float[64 * COMPONENTS];
+
+    /**
+     * A finished background fit that is not installed yet: every row is first projected onto these
+     * axes into <code>pendingReduced</code>, then all of it replaces the live basis at once.
+     * All null while no fit is being installed.
+     */
+    private float[] pendingComponents = null;
+    private float[] pendingMean = null;
+    private float[] pendingMeanProj = null;
+    private float[] pendingReduced = null;
+    private final AtomicBoolean fitting = new AtomicBoolean(false);
+
+    private final Random rng = new Random(0x9ca);
+    private static final ThreadLocal<float[]> QUERY_PROJ = ThreadLocal.withInitial(() -> new float[COMPONENTS]);
+
+    public PcaKnnIndex() {
+        this(4, 64);
+    }
+
+    public PcaKnnIndex(int shortlistFactor, int shortlistSlack) {
+        super(shortlistFactor, shortlistSlack);
+    }
+
+    /* ----------------- statistics ----------------- */
+
+    private void accumulate(int ord, double sign) {
+        int off = ord * DIM;
+        for (int a = 0; a < DIM; a++) {
+            double xa = rows[off + a] * sign;
+            sum[a] += xa;
+            int base = a * DIM;
+            for (int b = a; b < DIM; b++) moment[base + b] += xa * rows[off + b];
+        }
+    }
+
+    @Override
+    protected void rowWillChange(int ord) {
+        if (!counted[ord]) return;
+        accumulate(ord, -1.0);
+        counted[ord] = false;
+        n--;
+    }
+
+    @Override
+    protected void rowRemoved(int ord) {
+        rowWillChange(ord);
+    }
+
+    @Override
+    protected void moveSketch(int from, int to) {
+        System.arraycopy(reduced, from * COMPONENTS, reduced, to * COMPONENTS, COMPONENTS);
+        // a refit's reprojection may not have reached `from` yet but already be past `to`, so
+        // project the moved row (rows[to] already holds it) instead of copying its pending slot
+        if (pendingComponents != null) project(pendingComponents, pendingMeanProj, pendingReduced, to);
+        counted[to] = counted[from];
+        counted[from] = false;
+    }
+
+    @Override
+    protected void growSketch(int capacity) {
+        counted = Arrays.copyOf(counted, capacity);
+        reduced = Arrays.copyOf(reduced, capacity * COMPONENTS);
+        if (pendingReduced != null) pendingReduced = Arrays.copyOf(pendingReduced, capacity * COMPONENTS);
+    }
+
+    @Override
+    protected void encode(int ord) {
+        accumulate(ord, 1.0);
+        counted[ord] = true;
+        n++;
+        changedSinceFit++;
+        projectBoth(ord);
+        maybeRefit();
+    }
+
+    /** Accumulates the whole batch first, so a bulk load queues at most one fit. */
+    @Override
+    protected void encodeAll(int[] ords, int n) {
+        for (int i = 0; i < n; i++) {
+            int ord = ords[i];
+            accumulate(ord, 1.0);
+            counted[ord] = true;
+            projectBoth(ord);
+        }
+        this.n += n;
+        changedSinceFit += n;
+        maybeRefit();
+    }
+
+    /** Projects <code>ord</code> onto the live axes and onto the ones being installed, if any. Write lock held. */
+    private void projectBoth(int ord) {
+        if (components != null) project(components, meanProj, reduced, ord);
+        if (pendingComponents != null) project(pendingComponents, pendingMeanProj, pendingReduced, ord);
+    }
+
+    /* ----------------- fitting ----------------- */
+
+    /** Rows re-projected per read-lock hold while a background fit is installed. */
+    private static final int REPROJECT_CHUNK = 256;
+
+    private static final ExecutorService FITTER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Mysticism-PCA-Fitter");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /**
+     * Queues a fit once enough rows have changed. The moments are snapshotted here; the fit and the
+     * re-projection run on the fitter thread, so writers only pay for the copy. Write lock held.
+     */
+    private void maybeRefit() {
+        boolean due = components == null
+                ? n >= MIN_FIT
+                : changedSinceFit >= Math.max(REFIT_MIN, count / REFIT_DIVISOR);
+        if (!due || !fitting.compareAndSet(false, true)) return;
+
+        final double[] sumSnap = sum.clone();
+        final double[] momentSnap = moment.clone();
+        final int nSnap = n;
+        final float[] warm = components;
+        changedSinceFit = 0;
+        FITTER.execute(() -> {
+            try {
+                fit(sumSnap, momentSnap, nSnap, warm);
+            } catch (Throwable t) {
+                LOGGER.error("PCA fit failed", t);
+                rw.writeLock().lock();
+                try { clearPending(); }
+                finally { rw.writeLock().unlock(); }
+            } finally {
+                fitting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Orthogonal iteration on the snapshot's covariance (warm-started from <code>warm</code>, if
+     * any), with no lock held. The new axes are then installed in three steps: published as
+     * pending under the write lock, every row projected onto them in chunks under the read lock
+     * (writers project the rows they write, and compaction the rows it moves, meanwhile), and
+     * swapped in under the write lock.
+     */
+    private void fit(double[] sum, double[] moment, int n, float[] warm) {
+        final double invN = 1.0 / n;
+        final float[] mean = new float[DIM];
+        for (int d = 0; d < DIM; d++) mean[d] = (float) (sum[d] * invN);
+
+        float[] cov = new float[DIM * DIM];
+        for (int a = 0; a < DIM; a++) {
+            for (int b = a; b < DIM; b++) {
+                float c = (float) (moment[a * DIM + b] * invN - (sum[a] * invN) * (sum[b] * invN));
+                cov[a * DIM + b] = c;
+                cov[b * DIM + a] = c;
+            }
+        }
+
+        float[] q;
+        if (warm != null) {
+            q = warm.clone();
+        } else {
+            q = new float[COMPONENTS * DIM];
+            for (int i = 0; i < q.length; i++) q[i] = (float) rng.nextGaussian();
+            orthonormalize(q);
+        }
+        final int iters = warm == null ? COLD_ITERS : WARM_ITERS;
+        float[] z = new float[COMPONENTS * DIM];
+        for (int it = 0; it < iters; it++) {
+            for (int c = 0; c < COMPONENTS; c++)
+                for (int d = 0; d < DIM; d++)
+                    z[c * DIM + d] = VecKernels.dot(cov, d * DIM, q, c * DIM, DIM);
+            orthonormalize(z);
+            float[] t = q; q = z; z = t;
+        }
+        final float[] meanProj = new float[COMPONENTS];
+        for (int c = 0; c < COMPONENTS; c++) meanProj[c] = VecKernels.dot(q, c * DIM, mean, 0, DIM);
+
+        rw.writeLock().lock();
+        try {
+            pendingComponents = q;
+            pendingMean = mean;
+            pendingMeanProj = meanProj;
+            pendingReduced = new float[counted.length * COMPONENTS];
+        } finally {
+            rw.writeLock().unlock();
+        }
+
+        for (int from = 0; ; from += REPROJECT_CHUNK) {
+            rw.readLock().lock();
+            try {
+                if (from >= count) break;
+                // only this thread writes pendingReduced under the read lock; writers hold the write lock
+                for (int o = from, to = Math.min(count, from + REPROJECT_CHUNK); o < to; o++)
+                    project(pendingComponents, pendingMeanProj, pendingReduced, o);
+            } finally {
+                rw.readLock().unlock();
+            }
+        }
+
+        rw.writeLock().lock();
+        try {
+            components = pendingComponents;
+            this.mean = pendingMean;
+            this.meanProj = pendingMeanProj;
+            reduced = pendingReduced;
+            clearPending();
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** Write lock held. */
+    private void clearPending() {
+        pendingComponents = null;
+        pendingMean = null;
+        pendingMeanProj = null;
+        pendingReduced = null;
+    }
+
+    /** Modified Gram–Schmidt over the COMPONENTS rows of <code>m</code>. Fitter thread only (uses {@link #rng}). */
+    private void orthonormalize(float[] m) {
+        for (int c = 0; c < COMPONENTS; c++) {
+            int co = c * DIM;
+            for (int p = 0; p < c; p++) {
+                int po = p * DIM;
+                VecKernels.axpy(m, co, m, po, -VecKernels.dot(m, co, m, po, DIM), DIM);
+            }
+            float sq = VecKernels.dot(m, co, m, co, DIM);
+            if (sq < 1e-20f) {
+                // rank-deficient data: restart this axis from noise and redo it
+                for (int d = 0; d < DIM; d++) m[co + d] = (float) rng.nextGaussian();
+                c--;
+                continue;
+            }
+            float inv = (float) (1.0 / Math.sqrt(sq));
+            for (int d = 0; d < DIM; d++) m[co + d] *= inv;
+        }
+    }
+
+    private void project(float[] axes, float[] meanProj, float[] dst, int ord) {
+        final int off = ord * DIM;
+        final int ro = ord * COMPONENTS;
+        for (int c = 0; c < COMPONENTS; c++)
+            dst[ro + c] = VecKernels.dot(axes, c * DIM, rows, off, DIM) - meanProj[c];
+    }
+
+    /* ----------------- search ----------------- */
+
+    @Override
+    protected void scanSketch(float[] query, Metric metric, BitSet allowed, int from, int to, TopK shortlist) {
+        final float[] q = components;
+        if (q == null) {
+            // too few vectors to fit: the exact scan is as cheap as anything else
+            final float qSq = VecKernels.dot(query, query);
+            final float qInv = qSq > 0 ? (float) (1.0 / Math.sqrt(qSq)) : 0f;
+            for (int o = from; o < to; o++)
+                if (allowed == null || allowed.get(o)) shortlist.offer(o, exactScore(o, query, qInv, metric));
+            return;
+        }
+
+        // qp = Qᵀq; <x, q> ≈ <q, mean> + <x̃, qp> and |x - q|² ≈ |x̃ - (qp - Qᵀmean)|²
+        final float[] qp = QUERY_PROJ.get();
+        for (int c = 0; c < COMPONENTS; c++) qp[c] = VecKernels.dot(q, c * DIM, query, 0, DIM);
+        final float qMean = VecKernels.dot(query, mean);
+        if (metric == Metric.EUCLIDEAN)
+            for (int c = 0; c < COMPONENTS; c++) qp[c] -= meanProj[c];
+
+        for (int o = from; o < to; o++) {
+            if (allowed != null && !allowed.get(o)) continue;
+            int ro = o * COMPONENTS;
+            float score = switch (metric) {
+                // query length is constant across candidates, so it is left out of the ranking
+                case COSINE -> (qMean + VecKernels.dot(reduced, ro, qp, 0, COMPONENTS)) * invLengths[o];
+                case DOT -> VecKernels.dot(reduced, ro, qp, 0, COMPONENTS);
+                case EUCLIDEAN -> -VecKernels.squareDistance(reduced, ro, qp, 0, COMPONENTS);
+            };
+            shortlist.offer(o, score);
+        }
+    }
+}
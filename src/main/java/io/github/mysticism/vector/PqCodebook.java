@@ -0,0 +1,186 @@
+package io.github.mysticism.vector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Product-quantization codebook: the 384 dims are split into <code>m</code> subspaces, each with
+ * <code>k</code> (≤ 256) centroids, so a vector encodes to <code>m</code> bytes. Immutable once trained.
+ */
+public final class PqCodebook {
+    public final int m;
+    public final int k;
+    public final int dsub;
+    /** centroids[(sub * k + c) * dsub + d] */
+    final float[] centroids;
+
+    PqCodebook(int m, int k, float[] centroids) {
+        if (Vec384f.DIM % m != 0) throw new IllegalArgumentException("384 not divisible into " + m + " subspaces");
+        if (k < 1 || k > 256) throw new IllegalArgumentException("centroids per subspace must be in [1, 256]: " + k);
+        this.m = m;
+        this.k = k;
+        this.dsub = Vec384f.DIM / m;
+        if (centroids.length != m * k * dsub)
+            throw new IllegalArgumentException("codebook size mismatch: " + centroids.length + " != " + (m * k * dsub));
+        this.centroids = centroids;
+    }
+
+    /**
+     * Trains one k-means (Lloyd, k-means++ seeding) per subspace.
+     *
+     * @param rows   Row-major training vectors.
+     * @param n      Number of rows to use.
+     * @param iters  Lloyd iterations per subspace.
+     */
+    public static PqCodebook train(float[] rows, int n, int m, int k, int iters, Random rng) {
+        if (n < k) throw new IllegalArgumentException("need at least " + k + " training vectors, got " + n);
+        final int dsub = Vec384f.DIM / m;
+        float[] cents = new float[m * k * dsub];
+        float[] sub = new float[n * dsub];
+        int[] assign = new int[n];
+        float[] sums = new float[k * dsub];
+        int[] counts = new int[k];
+
+        for (int s = 0; s < m; s++) {
+            for (int i = 0; i < n; i++)
+                System.arraycopy(rows, i * Vec384f.DIM + s * dsub, sub, i * dsub, dsub);
+
+            float[] c = new float[k * dsub];
+            seedPlusPlus(sub, n, dsub, c, k, rng);
+
+            for (int it = 0; it < iters; it++) {
+                for (int i = 0; i < n; i++) assign[i] = nearest(c, k, dsub, sub, i * dsub);
+
+                Arrays.fill(sums, 0f);
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < n; i++) {
+                    int a = assign[i];
+                    counts[a]++;
+                    for (int d = 0; d < dsub; d++) sums[a * dsub + d] += sub[i * dsub + d];
+                }
+                for (int j = 0; j < k; j++) {
+                    if (counts[j] == 0) {
+                        // empty cluster: re-seed on a random training point
+                        System.arraycopy(sub, rng.nextInt(n) * dsub, c, j * dsub, dsub);
+                        continue;
+                    }
+                    float inv = 1f / counts[j];
+                    for (int d = 0; d < dsub; d++) c[j * dsub + d] = sums[j * dsub + d] * inv;
+                }
+            }
+            System.arraycopy(c, 0, cents, s * k * dsub, k * dsub);
+        }
+        return new PqCodebook(m, k, cents);
+    }
+
+    private static void seedPlusPlus(float[] sub, int n, int dsub, float[] c, int k, Random rng) {
+        float[] d2 = new float[n];
+        System.arraycopy(sub, rng.nextInt(n) * dsub, c, 0, dsub);
+        Arrays.fill(d2, Float.POSITIVE_INFINITY);
+        for (int j = 1; j < k; j++) {
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                d2[i] = Math.min(d2[i], VecKernels.squareDistance(sub, i * dsub, c, (j - 1) * dsub, dsub));
+                total += d2[i];
+            }
+            int pick = rng.nextInt(n);
+            if (total > 0) {
+                double r = rng.nextDouble() * total;
+                for (int i = 0; i < n; i++) {
+                    r -= d2[i];
+                    if (r <= 0) { pick = i; break; }
+                }
+            }
+            System.arraycopy(sub, pick * dsub, c, j * dsub, dsub);
+        }
+    }
+
+    private static int nearest(float[] c, int k, int dsub, float[] x, int xo) {
+        int best = 0;
+        float bestD = Float.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            float d = VecKernels.squareDistance(c, j * dsub, x, xo, dsub);
+            if (d < bestD) { bestD = d; best = j; }
+        }
+        return best;
+    }
+
+    /** Encodes the vector at <code>src[so..so+384)</code> into <code>dst[doff..doff+m)</code>. */
+    public void encode(float[] src, int so, byte[] dst, int doff) {
+        for (int s = 0; s < m; s++) {
+            int base = s * k * dsub;
+            int best = 0;
+            float bestD = Float.POSITIVE_INFINITY;
+            for (int j = 0; j < k; j++) {
+                float d = VecKernels.squareDistance(centroids, base + j * dsub, src, so + s * dsub, dsub);
+                if (d < bestD) { bestD = d; best = j; }
+            }
+            dst[doff + s] = (byte) best;
+        }
+    }
+
+    /**
+     * Encodes like {@link #encode} if the vector is exactly a reconstruction under this codebook
+     * (every subvector equals one of its centroids), and returns whether it was. Bails out at the
+     * first subspace that misses, so probing a foreign codebook costs about one subspace.
+     */
+    public boolean encodeExact(float[] src, int so, byte[] dst, int doff) {
+        for (int s = 0; s < m; s++) {
+            int base = s * k * dsub;
+            int hit = -1;
+            for (int j = 0; j < k && hit < 0; j++)
+                if (Arrays.equals(centroids, base + j * dsub, base + (j + 1) * dsub, src, so + s * dsub, so + (s + 1) * dsub)) hit = j;
+            if (hit < 0) return false;
+            dst[doff + s] = (byte) hit;
+        }
+        return true;
+    }
+
+    /** Reconstructs the centroid concatenation for <code>codes[co..co+m)</code> into <code>dst[doff..]</code>. */
+    public void decode(byte[] codes, int co, float[] dst, int doff) {
+        for (int s = 0; s < m; s++) {
+            int c = codes[co + s] & 0xFF;
+            System.arraycopy(centroids, (s * k + c) * dsub, dst, doff + s * dsub, dsub);
+        }
+    }
+
+    /**
+     * Asymmetric distance table for one query: <code>table[s * k + c]</code> is the contribution of
+     * centroid <code>c</code> in subspace <code>s</code>. Summing the entries picked by a code row gives
+     * |q - x̂|² for EUCLIDEAN, and &lt;q, x̂&gt; for DOT/COSINE.
+     */
+    public float[] table(float[] q, Metric metric, float[] out) {
+        if (out == null || out.length < m * k) out = new float[m * k];
+        table(q, metric, out, 0);
+        return out;
+    }
+
+    /** {@link #table(float[], Metric, float[])} into <code>out[off..off+m*k)</code>, which must fit. */
+    public void table(float[] q, Metric metric, float[] out, int off) {
+        for (int s = 0; s < m; s++) {
+            for (int j = 0; j < k; j++) {
+                int co = (s * k + j) * dsub;
+                out[off + s * k + j] = metric == Metric.EUCLIDEAN
+                        ? VecKernels.squareDistance(centroids, co, q, s * dsub, dsub)
+                        : VecKernels.dot(centroids, co, q, s * dsub, dsub);
+            }
+        }
+    }
+
+    /* ----------------- persistence (same raw-float-bits convention as Vec384f) ----------------- */
+
+    public int[] toBits() {
+        int[] bits = new int[2 + centroids.length];
+        bits[0] = m;
+        bits[1] = k;
+        for (int i = 0; i < centroids.length; i++) bits[2 + i] = Float.floatToIntBits(centroids[i]);
+        return bits;
+    }
+
+    public static PqCodebook fromBits(int[] bits) {
+        if (bits.length < 2) throw new IllegalArgumentException("missing codebook header");
+        float[] c = new float[bits.length - 2];
+        for (int i = 0; i < c.length; i++) c[i] = Float.intBitsToFloat(bits[2 + i]);
+        return new PqCodebook(bits[0], bits[1], c);
+    }
+}
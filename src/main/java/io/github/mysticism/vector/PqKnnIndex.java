@@ -0,0 +1,521 @@
+package io.github.mysticism.vector;
+
+import ai.djl.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Product-quantized kNN (48 subspaces × 256 centroids → 48 bytes per vector).
+ * <p>
+ * Until the index reaches {@link #TRAIN_THRESHOLD} vectors it stores raw fp32 rows and searches
+ * exactly. Past that a codebook is trained in the background from a reservoir sample, every row
+ * is encoded (in chunks under the read lock, so searches and writes keep going) and the raw rows
+ * are dropped. Queries then score codes through per-query asymmetric distance tables.
+ * <p>
+ * Whenever the index doubles in size past the last training, a new codebook generation is trained
+ * from the reservoir, up to {@link #MAX_GENERATIONS}. New writes encode with the newest one, and
+ * existing rows stay on the generation that encoded them: their codes came from the exact input,
+ * and re-encoding a reconstruction would only add a second round of quantization error. Queries
+ * build one table per generation.
+ * <p>
+ * Because only codes are kept, {@link #get(String)} and {@link #forEach(BiConsumer)} return
+ * reconstructions once trained. Persist {@link #codebooks()} alongside them and reload through
+ * {@link #restore} so every row finds its generation and codes again instead of retraining.
+ * <p>
+ * Rows edited in place ({@link #deltaUpdate}, {@link #converge}) after training keep an exact
+ * fp32 copy next to their codes, so repeated edits never stack quantization error onto each
+ * other and the exact value is what gets persisted. A plain {@link #upsert} drops that copy.
+ */
+public class PqKnnIndex implements KnnIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-PqKnnIndex");
+    private static final int DIM = Vec384f.DIM;
+
+    public static final int SUBSPACES = 48;
+    public static final int CENTROIDS = 256;
+    public static final int TRAIN_THRESHOLD = 4096;
+    private static final int RESERVOIR = 4096;
+    private static final int KMEANS_ITERS = 8;
+    /** Codebook generations kept; the index stops retraining once this many exist. */
+    public static final int MAX_GENERATIONS = 8;
+    /** Rows encoded per read-lock hold while the first codebook is installed. */
+    private static final int ENCODE_CHUNK = 256;
+    private static final int TABLE_SIZE = SUBSPACES * CENTROIDS;
+
+    private static final ExecutorService TRAINER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Mysticism-PQ-Trainer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final HashMap<String, Integer> ordinals = new HashMap<>();
+    private String[] ids = new String[64];
+    private float[] invLengths = new float[64];
+    private int count = 0;
+
+    /** Raw rows; only non-null until the first codebook is installed. */
+    private float[] raw = new float[64 * DIM];
+    /** SUBSPACES codes per ordinal; only non-null once a codebook is installed. */
+    private byte[] codes = null;
+    /** Codebook generation of each ordinal's codes (an index into {@link #books}). */
+    private byte[] gens = null;
+    /** Exact rows of ordinals edited since training (null for the rest); codes are encoded from these. */
+    private float[][] exact = new float[64][];
+    /** Codebook generations, oldest first; empty until the first training lands. */
+    private PqCodebook[] books = new PqCodebook[0];
+    private int trainedAtCount = 0;
+
+    /**
+     * The first codebook while its codes are being filled in off the write lock: the trainer encodes
+     * every raw row into <code>pendingCodes</code> chunk by chunk, and writers and removals encode the
+     * rows they touch meanwhile. Both null otherwise.
+     */
+    private PqCodebook pendingBook = null;
+    private byte[] pendingCodes = null;
+
+    /** Reservoir sample of raw rows for (re)training. */
+    private final float[] reservoir = new float[RESERVOIR * DIM];
+    private int reservoirSize = 0;
+    private long seen = 0;
+    private final Random rng = new Random(0x5eed);
+    private final AtomicBoolean training = new AtomicBoolean(false);
+
+    private static final ThreadLocal<float[]> TABLE = ThreadLocal.withInitial(() -> new float[TABLE_SIZE]);
+
+    /** The newest codebook generation (what new writes encode with), or null before training. */
+    public PqCodebook codebook() {
+        rw.readLock().lock();
+        try { return books.length == 0 ? null : books[books.length - 1]; }
+        finally { rw.readLock().unlock(); }
+    }
+
+    /** Every codebook generation, oldest first; empty before training. Persist all of them. */
+    public List<PqCodebook> codebooks() {
+        rw.readLock().lock();
+        try { return List.of(books); }
+        finally { rw.readLock().unlock(); }
+    }
+
+    /**
+     * Installs a (persisted) codebook as the only generation and encodes everything stored so far
+     * with it, under the write lock: meant for load time, before the index is shared.
+     */
+    public void installCodebook(PqCodebook cb) {
+        checkShape(cb);
+        rw.writeLock().lock();
+        try {
+            install(new PqCodebook[]{cb});
+            trainedAtCount = Math.max(count, TRAIN_THRESHOLD);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** {@link #restore(List, Map)} with a single generation (saves from before generations existed). */
+    public void restore(PqCodebook cb, Map<String, Vec384f> vectors) {
+        restore(List.of(cb), vectors);
+    }
+
+    /**
+     * Reload path: installs the persisted codebook generations (oldest first), then bulk-loads the
+     * vectors saved alongside them. A reconstruction is matched to the generation it decodes from
+     * and gets its saved codes back exactly; anything else was saved from an exact copy, which is
+     * encoded with the newest generation and kept. Restored vectors stay out of the training
+     * reservoir, and the next retrain waits until the index doubles past its restored size rather
+     * than firing on load.
+     */
+    public void restore(List<PqCodebook> generations, Map<String, Vec384f> vectors) {
+        if (generations.isEmpty() || generations.size() > MAX_GENERATIONS)
+            throw new IllegalArgumentException("expected 1.." + MAX_GENERATIONS + " codebooks, got " + generations.size());
+        for (PqCodebook cb : generations) checkShape(cb);
+        rw.writeLock().lock();
+        try {
+            install(generations.toArray(new PqCodebook[0]));
+            reserve(count + vectors.size());
+            vectors.forEach((id, v) -> {
+                int ord = ordinalFor(id);
+                float sq = VecKernels.dot(v.data, v.data);
+                invLengths[ord] = sq > 0 ? (float) (1.0 / Math.sqrt(sq)) : 0f;
+                // newest first: recent rows are the likeliest, and a miss bails after one subspace
+                int g = books.length - 1;
+                while (g >= 0 && !books[g].encodeExact(v.data, 0, codes, ord * SUBSPACES)) g--;
+                if (g >= 0) {
+                    gens[ord] = (byte) g;
+                    exact[ord] = null;
+                } else {
+                    writeRow(ord, v.data, false);
+                    exact[ord] = v.data.clone();
+                }
+            });
+            trainedAtCount = Math.max(count, TRAIN_THRESHOLD);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private static void checkShape(PqCodebook cb) {
+        if (cb.m != SUBSPACES || cb.k != CENTROIDS)
+            throw new IllegalArgumentException("codebook shape " + cb.m + "x" + cb.k + " != " + SUBSPACES + "x" + CENTROIDS);
+    }
+
+    public int size() {
+        rw.readLock().lock();
+        try { return count; }
+        finally { rw.readLock().unlock(); }
+    }
+
+    /* ----------------- storage ----------------- */
+
+    private int ordinalFor(String id) {
+        Integer ord = ordinals.get(id);
+        if (ord != null) return ord;
+        int o = count++;
+        if (o >= ids.length) reserve(Math.max(ids.length * 2, o + 1));
+        ids[o] = id;
+        ordinals.put(id, o);
+        return o;
+    }
+
+    /** Grows storage to hold at least <code>capacity</code> ordinals. Write lock held. */
+    private void reserve(int capacity) {
+        if (capacity <= ids.length) return;
+        ids = Arrays.copyOf(ids, capacity);
+        invLengths = Arrays.copyOf(invLengths, capacity);
+        exact = Arrays.copyOf(exact, capacity);
+        if (raw != null) raw = Arrays.copyOf(raw, capacity * DIM);
+        if (codes != null) codes = Arrays.copyOf(codes, capacity * SUBSPACES);
+        if (gens != null) gens = Arrays.copyOf(gens, capacity);
+        if (pendingCodes != null) pendingCodes = Arrays.copyOf(pendingCodes, capacity * SUBSPACES);
+    }
+
+    private boolean trained() {
+        return books.length > 0;
+    }
+
+    /** Reads ordinal <code>ord</code> as fp32 (raw row, exact copy or reconstruction) into <code>dst</code>. */
+    private void readRow(int ord, float[] dst) {
+        if (!trained()) System.arraycopy(raw, ord * DIM, dst, 0, DIM);
+        else if (exact[ord] != null) System.arraycopy(exact[ord], 0, dst, 0, DIM);
+        else books[gens[ord]].decode(codes, ord * SUBSPACES, dst, 0);
+    }
+
+    /** Stores an in-place edit of <code>ord</code>, keeping it exact once codes are in use. Write lock held. */
+    private void editRow(int ord, float[] row, boolean fresh) {
+        writeRow(ord, row, fresh);
+        if (!trained()) return;
+        if (exact[ord] == null) exact[ord] = row.clone();
+        else System.arraycopy(row, 0, exact[ord], 0, DIM);
+    }
+
+    /**
+     * Stores <code>v</code> at <code>ord</code>. Only <code>fresh</code> vectors (new input, not
+     * decoded reconstructions) feed the training reservoir. Write lock held.
+     */
+    private void writeRow(int ord, float[] v, boolean fresh) {
+        float sq = VecKernels.dot(v, v);
+        invLengths[ord] = sq > 0 ? (float) (1.0 / Math.sqrt(sq)) : 0f;
+        if (!trained()) {
+            System.arraycopy(v, 0, raw, ord * DIM, DIM);
+            if (pendingBook != null) pendingBook.encode(v, 0, pendingCodes, ord * SUBSPACES);
+        } else {
+            int g = books.length - 1;
+            books[g].encode(v, 0, codes, ord * SUBSPACES);
+            gens[ord] = (byte) g;
+        }
+        if (fresh) sample(v);
+    }
+
+    private void sample(float[] v) {
+        long s = seen++;
+        if (reservoirSize < RESERVOIR) {
+            System.arraycopy(v, 0, reservoir, reservoirSize++ * DIM, DIM);
+        } else {
+            long j = (long) (rng.nextDouble() * (s + 1));
+            if (j < RESERVOIR) System.arraycopy(v, 0, reservoir, (int) j * DIM, DIM);
+        }
+    }
+
+    /**
+     * Replaces every generation with <code>next</code> and encodes all stored rows with its newest
+     * codebook; cancels a first training still filling in its codes. Write lock held.
+     */
+    private void install(PqCodebook[] next) {
+        byte[] fresh = new byte[ids.length * SUBSPACES];
+        float[] row = new float[DIM];
+        final PqCodebook newest = next[next.length - 1];
+        for (int o = 0; o < count; o++) {
+            readRow(o, row);
+            newest.encode(row, 0, fresh, o * SUBSPACES);
+        }
+        gens = new byte[ids.length];
+        Arrays.fill(gens, (byte) (next.length - 1));
+        codes = fresh;
+        books = next;
+        raw = null;
+        pendingBook = null;
+        pendingCodes = null;
+    }
+
+    /**
+     * Trainer thread: encodes every raw row with <code>cb</code> in {@link #ENCODE_CHUNK}-row chunks
+     * under the read lock, then swaps the codes in under the write lock. Writers keep the rows they
+     * touch current meanwhile; gives up if a restore or install got there first.
+     */
+    private void installFirst(PqCodebook cb) {
+        rw.writeLock().lock();
+        try {
+            if (trained()) return;
+            pendingBook = cb;
+            pendingCodes = new byte[ids.length * SUBSPACES];
+        } finally {
+            rw.writeLock().unlock();
+        }
+
+        for (int from = 0; ; from += ENCODE_CHUNK) {
+            rw.readLock().lock();
+            try {
+                if (pendingBook != cb) return;
+                if (from >= count) break;
+                // only this thread writes pendingCodes under the read lock; writers hold the write lock
+                for (int o = from, to = Math.min(count, from + ENCODE_CHUNK); o < to; o++)
+                    cb.encode(raw, o * DIM, pendingCodes, o * SUBSPACES);
+            } finally {
+                rw.readLock().unlock();
+            }
+        }
+
+        rw.writeLock().lock();
+        try {
+            if (pendingBook != cb) return;
+            codes = pendingCodes;
+            gens = new byte[ids.length];
+            books = new PqCodebook[]{cb};
+            raw = null;
+            pendingBook = null;
+            pendingCodes = null;
+            trainedAtCount = count;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private void maybeTrain() {
+        // write lock held by caller
+        if (count < TRAIN_THRESHOLD) return;
+        if (trained() && (count < 2 * trainedAtCount || books.length >= MAX_GENERATIONS)) return;
+        // a restored index only samples writes made since the restore
+        if (reservoirSize < CENTROIDS) return;
+        if (!training.compareAndSet(false, true)) return;
+
+        final int n = reservoirSize;
+        final float[] sample = Arrays.copyOf(reservoir, n * DIM);
+        final int target = count;
+        TRAINER.execute(() -> {
+            try {
+                long t0 = System.currentTimeMillis();
+                PqCodebook cb = PqCodebook.train(sample, n, SUBSPACES, CENTROIDS, KMEANS_ITERS, new Random(target));
+                int generation;
+                rw.writeLock().lock();
+                try {
+                    generation = books.length;
+                    if (trained()) {
+                        // older rows keep their codes; only new writes use this generation
+                        books = Arrays.copyOf(books, books.length + 1);
+                        books[generation] = cb;
+                        trainedAtCount = count;
+                    }
+                } finally {
+                    rw.writeLock().unlock();
+                }
+                if (generation == 0) installFirst(cb);
+                LOGGER.info("Trained PQ codebook generation {} on {} samples for {} vectors in {} ms",
+                        generation, n, target, System.currentTimeMillis() - t0);
+            } catch (Throwable t) {
+                LOGGER.error("PQ training failed", t);
+            } finally {
+                training.set(false);
+            }
+        });
+    }
+
+    public void upsert(String id, Vec384f v) {
+        rw.writeLock().lock();
+        try {
+            int ord = ordinalFor(id);
+            writeRow(ord, v.data, true);
+            exact[ord] = null;
+            maybeTrain();
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** One write lock for the batch, and at most one training run queued once it is all in. */
+    @Override
+    public void upsertAll(Map<String, Vec384f> vectors) {
+        if (vectors.isEmpty()) return;
+        rw.writeLock().lock();
+        try {
+            reserve(count + vectors.size());
+            vectors.forEach((id, v) -> {
+                int ord = ordinalFor(id);
+                writeRow(ord, v.data, true);
+                exact[ord] = null;
+            });
+            maybeTrain();
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public Vec384f get(String id) {
+        rw.readLock().lock();
+        try {
+            Integer ord = ordinals.get(id);
+            if (ord == null) return null;
+            float[] out = new float[DIM];
+            readRow(ord, out);
+            return Vec384f.wrap(out).freeze();
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    public void deltaUpdate(String id, Vec384f delta) {
+        rw.writeLock().lock();
+        try {
+            boolean exists = ordinals.containsKey(id);
+            int ord = ordinalFor(id);
+            float[] row = new float[DIM];
+            if (exists) readRow(ord, row);
+            VecKernels.axpy(row, delta.data, 1f);
+            editRow(ord, row, !exists || !trained());
+            maybeTrain();
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
+        rw.writeLock().lock();
+        try {
+            float[] row = new float[DIM];
+            for (String key : affectedKeys) {
+                boolean exists = ordinals.containsKey(key);
+                int ord = ordinalFor(key);
+                if (exists) readRow(ord, row);
+                else Arrays.fill(row, 0f);
+                for (int n = 0; n < DIM; n++) row[n] += (target.data[n] - row[n]) * factor;
+                editRow(ord, row, !exists || !trained());
+            }
+            maybeTrain();
+        } finally { rw.writeLock().unlock(); }
+    }
+
+    /** O(1): the last ordinal's row (or codes) moves into the hole, keeping storage dense. */
+    public boolean remove(String id) {
+        rw.writeLock().lock();
+        try {
+            Integer ord = ordinals.remove(id);
+            if (ord == null) return false;
+            int last = --count;
+            if (ord != last) {
+                if (!trained()) {
+                    System.arraycopy(raw, last * DIM, raw, ord * DIM, DIM);
+                    // the first training may have passed `ord` but not reached `last`: encode the moved row
+                    if (pendingBook != null) pendingBook.encode(raw, ord * DIM, pendingCodes, ord * SUBSPACES);
+                } else {
+                    System.arraycopy(codes, last * SUBSPACES, codes, ord * SUBSPACES, SUBSPACES);
+                    gens[ord] = gens[last];
+                }
+                ids[ord] = ids[last];
+                invLengths[ord] = invLengths[last];
+                exact[ord] = exact[last];
+                ordinals.put(ids[ord], ord);
+            }
+            ids[last] = null;
+            exact[last] = null;
+            return true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    public void forEach(BiConsumer<String, Vec384f> consumer) {
+        List<String> idSnap = new ArrayList<>();
+        List<Vec384f> vecSnap = new ArrayList<>();
+        rw.readLock().lock();
+        try {
+            for (int o = 0; o < count; o++) {
+                float[] out = new float[DIM];
+                readRow(o, out);
+                idSnap.add(ids[o]);
+                vecSnap.add(Vec384f.wrap(out).freeze());
+            }
+        } finally {
+            rw.readLock().unlock();
+        }
+        for (int i = 0; i < idSnap.size(); i++) consumer.accept(idSnap.get(i), vecSnap.get(i));
+    }
+
+    /* ----------------- search ----------------- */
+
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final float[] q = query.data;
+        final float queryInv = query.invLength();
+
+        rw.readLock().lock();
+        try {
+            if (count == 0) return new ArrayList<>();
+            TopK best = TopK.local(Math.min(k, count));
+
+            if (!trained()) {
+                // not trained yet: exact scan over raw rows
+                for (int o = 0; o < count; o++) {
+                    int off = o * DIM;
+                    float score = switch (metric) {
+                        case COSINE -> VecKernels.dot(raw, off, q, 0, DIM) * invLengths[o] * queryInv;
+                        case DOT -> VecKernels.dot(raw, off, q, 0, DIM);
+                        case EUCLIDEAN -> -VecKernels.squareDistance(raw, off, q, 0, DIM);
+                    };
+                    best.offer(o, score);
+                }
+            } else {
+                // one table per generation, back to back; each row reads its own
+                float[] table = TABLE.get();
+                if (table.length < books.length * TABLE_SIZE) TABLE.set(table = new float[MAX_GENERATIONS * TABLE_SIZE]);
+                for (int g = 0; g < books.length; g++) books[g].table(q, metric, table, g * TABLE_SIZE);
+                final byte[] c = codes;
+                final byte[] gen = gens;
+                for (int o = 0; o < count; o++) {
+                    int base = o * SUBSPACES;
+                    int t = gen[o] * TABLE_SIZE;
+                    float s = 0f;
+                    for (int m = 0; m < SUBSPACES; m++) s += table[t + m * CENTROIDS + (c[base + m] & 0xFF)];
+                    float score = switch (metric) {
+                        case COSINE -> s * invLengths[o] * queryInv;
+                        case DOT -> s;
+                        case EUCLIDEAN -> -s;
+                    };
+                    best.offer(o, score);
+                }
+            }
+
+            best.sortDescending();
+            List<Pair<String, Float>> out = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) out.add(new Pair<>(ids[best.ordinal(i)], best.score(i)));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+}
@@ -16,20 +16,26 @@ public final class Projection384f {
             Vec384f obj, Vec384f you, Basis384f basis,
             Vec3d anchorWorld, float scale
     ) {
-        float x = 0f, y = 0f, z = 0f;
-
-        final float[] od = obj.data;
-        final float[] yd = you.data;
-        final float[] I  = basis.i.data;
-        final float[] J  = basis.j.data;
-        final float[] K  = basis.k.data;
+        final float[] xyz = new float[3];
+        VecKernels.project(obj.data, 0, you.data, 0, basis.i.data, basis.j.data, basis.k.data, xyz, 0);
+        return anchorWorld.add(xyz[0] * scale, xyz[1] * scale, xyz[2] * scale);
+    }
 
-        for (int n = 0; n < 384; n++) {
-            float d = od[n] - yd[n];
-            x += d * I[n];
-            y += d * J[n];
-            z += d * K[n];
-        }
-        return anchorWorld.add(x * scale, y * scale, z * scale);
+    /**
+     * Batched form of {@link #projectToWorld} for a contiguous row-major matrix of <code>n</code>
+     * object vectors (<code>objs[r * 384 ..]</code>). Writes the scaled offsets from the anchor,
+     * <code>scale * &lt;obj - you, i/j/k&gt;</code>, into <code>out[3r..3r+2]</code>; add the anchor
+     * yourself. &lt;you, i/j/k&gt; is computed once, so each object costs a single fused sweep.
+     *
+     * @param out Reused when it holds at least <code>3n</code> floats, otherwise reallocated.
+     * @return The array written to.
+     */
+    public static float[] projectAll(float[] objs, int n, Vec384f you, Basis384f basis, float scale, float[] out) {
+        if (out == null || out.length < 3 * n) out = new float[3 * n];
+        final float[] i = basis.i.data, j = basis.j.data, k = basis.k.data;
+        VecKernels.projectRows(objs, n, i, j, k,
+                VecKernels.dot(you.data, i), VecKernels.dot(you.data, j), VecKernels.dot(you.data, k),
+                scale, out);
+        return out;
     }
 }
@@ -0,0 +1,107 @@
+package io.github.mysticism.vector;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Two-pass kNN: a subclass scans a compressed sketch of every vector to shortlist candidates,
+ * then the shortlist is re-ranked exactly against the full-precision rows kept here.
+ * <p>
+ * Vectors live in the flat row-major storage of {@link FlatKnnIndex}; the sketch is
+ * whatever the subclass builds in {@link #encode(int)}.
+ */
+public abstract class RerankingKnnIndex extends FlatKnnIndex {
+    /** Shortlist = max(k * factor, k + slack) candidates, capped at size(). */
+    private final int shortlistFactor;
+    private final int shortlistSlack;
+
+    protected RerankingKnnIndex(int shortlistFactor, int shortlistSlack) {
+        this.shortlistFactor = shortlistFactor;
+        this.shortlistSlack = shortlistSlack;
+    }
+
+    /* ----------------- subclass hooks ----------------- */
+
+    /** Grow sketch storage to hold at least <code>capacity</code> ordinals. Called under the write lock. */
+    protected abstract void growSketch(int capacity);
+
+    /** (Re)build the sketch of <code>ord</code> from <code>rows</code>. Called under the write lock. */
+    protected abstract void encode(int ord);
+
+    /**
+     * (Re)build the sketches of the first <code>n</code> of <code>ords</code> after a bulk load.
+     * Override when building them together is cheaper than one at a time. Called under the write lock.
+     */
+    protected void encodeAll(int[] ords, int n) {
+        for (int i = 0; i < n; i++) encode(ords[i]);
+    }
+
+    /** Copy the sketch of <code>from</code> to <code>to</code> during compaction. Called under the write lock. */
+    protected abstract void moveSketch(int from, int to);
+
+    /**
+     * Approximate first pass: offer every ordinal in <code>[from, to)</code> that is in
+     * <code>allowed</code> (null = all) to <code>shortlist</code> with an approximate score (bigger = closer). Called under the read lock, possibly from
+     * several pool threads at once on disjoint ranges, so per-query scratch must be thread-local.
+     */
+    protected abstract void scanSketch(float[] query, Metric metric, BitSet allowed, int from, int to, TopK shortlist);
+
+    /** Sketch ordinals per parallel partition; sketches are small, so partitions can be long. */
+    private static final int PARTITION_ROWS = 4096;
+
+    protected int shortlistSize(int k) {
+        return (int) Math.min(count, Math.max((long) k * shortlistFactor, (long) k + shortlistSlack));
+    }
+
+    @Override
+    protected final void capacityChanged(int capacity) {
+        growSketch(capacity);
+    }
+
+    @Override
+    protected final void rowChanged(int ord) {
+        encode(ord);
+    }
+
+    @Override
+    protected final void rowsChanged(int[] ords, int n) {
+        encodeAll(ords, n);
+    }
+
+    @Override
+    protected final void rowMoved(int from, int to) {
+        moveSketch(from, to);
+    }
+
+    /* ----------------- search ----------------- */
+
+    /** Sketch scans are already bandwidth-light, so a batch simply runs the two passes per query. */
+    @Override
+    protected void searchBatchLocked(int k, List<Vec384f> queries, Metric metric, TopK[] outs) {
+        for (int q = 0; q < outs.length; q++) {
+            Vec384f query = queries.get(q);
+            searchLocked(k, query.data, query.invLength(), metric, live, outs[q]);
+        }
+    }
+
+    @Override
+    protected void searchLocked(int k, float[] q, float queryInv, Metric metric, BitSet allowed, TopK out) {
+        if (count == 0) {
+            out.reset(0);
+            return;
+        }
+
+        // pass 1: sketch scan (partitioned across the pool for large indexes)
+        TopK shortlist = new TopK(shortlistSize(k));
+        ParallelScan.topK(count, shortlist.capacity(), PARTITION_ROWS,
+                (from, to, top) -> scanSketch(q, metric, allowed, from, to, top), shortlist);
+
+        // pass 2: exact re-rank of the shortlist
+        out.reset(Math.min(k, shortlist.size()));
+        for (int i = 0; i < shortlist.size(); i++) {
+            int ord = shortlist.ordinal(i);
+            out.offer(ord, exactScore(ord, q, queryInv, metric));
+        }
+        out.sortDescending();
+    }
+}
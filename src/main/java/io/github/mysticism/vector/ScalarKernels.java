@@ -0,0 +1,125 @@
+package io.github.mysticism.vector;
+
+/**
+ * Plain-loop reference kernels. Used whenever the Vector API is unavailable
+ * (the JVM was started without <code>--add-modules jdk.incubator.vector</code>).
+ */
+final class ScalarKernels {
+    private ScalarKernels() {}
+
+    static float dot(float[] a, int ao, float[] b, int bo, int len) {
+        float out = 0f;
+        for (int n = 0; n < len; n++) out += a[ao + n] * b[bo + n];
+        return out;
+    }
+
+    static float squareDistance(float[] a, int ao, float[] b, int bo, int len) {
+        float out = 0f;
+        for (int n = 0; n < len; n++) {
+            float d = a[ao + n] - b[bo + n];
+            out += d * d;
+        }
+        return out;
+    }
+
+    static float squareDistanceBounded(float[] a, int ao, float[] b, int bo, int len, float limit) {
+        float out = 0f;
+        for (int n = 0; n < len; ) {
+            for (int end = Math.min(len, n + VecKernels.PARTIAL_BLOCK); n < end; n++) {
+                float d = a[ao + n] - b[bo + n];
+                out += d * d;
+            }
+            if (out > limit) return out;
+        }
+        return out;
+    }
+
+    static int dotInt8(byte[] a, int ao, byte[] b, int bo, int len) {
+        int out = 0;
+        for (int n = 0; n < len; n++) out += a[ao + n] * b[bo + n];
+        return out;
+    }
+
+    /** One fp16 or bf16 lane as fp32. */
+    static float half(short h, boolean bf16) {
+        return bf16 ? Float.intBitsToFloat(h << 16) : Float.float16ToFloat(h);
+    }
+
+    static float dotHalf(short[] h, int ho, boolean bf16, float[] q, int qo, int len) {
+        float out = 0f;
+        for (int n = 0; n < len; n++) out += half(h[ho + n], bf16) * q[qo + n];
+        return out;
+    }
+
+    static float squareDistanceHalf(short[] h, int ho, boolean bf16, float[] q, int qo, int len) {
+        float out = 0f;
+        for (int n = 0; n < len; n++) {
+            float d = half(h[ho + n], bf16) - q[qo + n];
+            out += d * d;
+        }
+        return out;
+    }
+
+    static void dotBlock(float[] rows, int ro, int nRows, float[] queries, int nQueries, float[] out) {
+        for (int r = 0, off = ro; r < nRows; r++, off += Vec384f.DIM)
+            for (int q = 0; q < nQueries; q++)
+                out[r * nQueries + q] = dot(rows, off, queries, q * Vec384f.DIM, Vec384f.DIM);
+    }
+
+    static void axpy(float[] y, int yo, float[] x, int xo, float s, int len) {
+        for (int n = 0; n < len; n++) y[yo + n] += x[xo + n] * s;
+    }
+
+    static void project(float[] obj, int oo, float[] you, int yo,
+                        float[] i, float[] j, float[] k, float[] out, int outOff) {
+        float x = 0f, y = 0f, z = 0f;
+        for (int n = 0; n < Vec384f.DIM; n++) {
+            float d = obj[oo + n] - you[yo + n];
+            x += d * i[n];
+            y += d * j[n];
+            z += d * k[n];
+        }
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    static void projectRows(float[] rows, int n, float[] i, float[] j, float[] k,
+                            float ox, float oy, float oz, float scale, float[] out) {
+        for (int r = 0, ro = 0; r < n; r++, ro += Vec384f.DIM) {
+            float x = 0f, y = 0f, z = 0f;
+            for (int d = 0; d < Vec384f.DIM; d++) {
+                float o = rows[ro + d];
+                x += o * i[d];
+                y += o * j[d];
+                z += o * k[d];
+            }
+            out[3 * r] = (x - ox) * scale;
+            out[3 * r + 1] = (y - oy) * scale;
+            out[3 * r + 2] = (z - oz) * scale;
+        }
+    }
+
+    static void basisGram(float[] i, float[] j, float[] k, float[] a, float[] out) {
+        java.util.Arrays.fill(out, 0, 10, 0f);
+        for (int n = 0; n < Vec384f.DIM; n++) gramLane(i[n], j[n], k[n], a[n], out);
+    }
+
+    /** Adds one lane's products to the 10 Gram sums (ii, jj, kk, ij, ik, jk, ia, ja, ka, aa). */
+    static void gramLane(float i, float j, float k, float a, float[] out) {
+        out[0] += i * i; out[1] += j * j; out[2] += k * k;
+        out[3] += i * j; out[4] += i * k; out[5] += j * k;
+        out[6] += i * a; out[7] += j * a; out[8] += k * a; out[9] += a * a;
+    }
+
+    static void basisCombine(float[] i, float[] j, float[] k, float[] a, float[] c) {
+        for (int n = 0; n < Vec384f.DIM; n++) combineLane(i, j, k, a, c, n);
+    }
+
+    static void combineLane(float[] i, float[] j, float[] k, float[] a, float[] c, int n) {
+        float vi = i[n], vj = j[n], vk = k[n], va = a[n];
+        i[n] = vi * c[0] + vj * c[1] + vk * c[2] + va * c[3];
+        j[n] = vi * c[4] + vj * c[5] + vk * c[6] + va * c[7];
+        k[n] = vi * c[8] + vj * c[9] + vk * c[10] + va * c[11];
+    }
+}
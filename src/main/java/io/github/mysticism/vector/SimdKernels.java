@@ -0,0 +1,294 @@
+package io.github.mysticism.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels using the preferred species of the host (8 lanes on AVX2, 16 on AVX-512).
+ * <p>
+ * Only ever touched through {@link VecKernels}, which checks that the incubator module is
+ * resolved before this class gets loaded.
+ */
+final class SimdKernels {
+    private SimdKernels() {}
+
+    static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Species for int8 dot products, in their own holder so a host without a usable byte shape
+     * only loses {@link #dotInt8}, not every kernel. Bytes load through a shape with as many lanes
+     * as the int species, or through the smallest legal one (64 bits) on 128-bit hosts, where each
+     * load then widens into {@link #PARTS} int vectors.
+     */
+    static final class Int8 {
+        private Int8() {}
+
+        static final VectorSpecies<Integer> IS = IntVector.SPECIES_PREFERRED;
+        static final VectorSpecies<Byte> BS = IS.length() * Byte.SIZE >= 64
+                ? VectorSpecies.of(byte.class, VectorShape.forBitSize(IS.length() * Byte.SIZE))
+                : ByteVector.SPECIES_64;
+        static final int PARTS = BS.length() / IS.length();
+    }
+
+    /**
+     * Species for the fp16/bf16 kernels, held apart like {@link Int8}: shorts load through the
+     * shape with as many lanes as {@link #S} and zero-extend into ints of the float shape, whose
+     * bits are then rebuilt as fp32 in-register.
+     */
+    static final class Half {
+        private Half() {}
+
+        static final VectorSpecies<Integer> IS = VectorSpecies.of(int.class, S.vectorShape());
+        static final VectorSpecies<Short> SS = VectorSpecies.of(short.class, VectorShape.forBitSize(S.length() * Short.SIZE));
+        /** 2^(127 - 15): moves an fp16 exponent shifted into fp32 position onto the fp32 bias; exact for subnormals too. */
+        static final float FP16_REBIAS = 0x1p112f;
+    }
+
+    static float dot(float[] a, int ao, float[] b, int bo, int len) {
+        FloatVector acc = FloatVector.zero(S);
+        int n = 0;
+        for (int bound = S.loopBound(len); n < bound; n += S.length()) {
+            FloatVector va = FloatVector.fromArray(S, a, ao + n);
+            FloatVector vb = FloatVector.fromArray(S, b, bo + n);
+            acc = va.fma(vb, acc);
+        }
+        float out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) out += a[ao + n] * b[bo + n];
+        return out;
+    }
+
+    static float squareDistance(float[] a, int ao, float[] b, int bo, int len) {
+        FloatVector acc = FloatVector.zero(S);
+        int n = 0;
+        for (int bound = S.loopBound(len); n < bound; n += S.length()) {
+            FloatVector d = FloatVector.fromArray(S, a, ao + n).sub(FloatVector.fromArray(S, b, bo + n));
+            acc = d.fma(d, acc);
+        }
+        float out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) {
+            float d = a[ao + n] - b[bo + n];
+            out += d * d;
+        }
+        return out;
+    }
+
+    static float squareDistanceBounded(float[] a, int ao, float[] b, int bo, int len, float limit) {
+        final int step = S.length();
+        FloatVector acc = FloatVector.zero(S);
+        int n = 0;
+        for (; n + VecKernels.PARTIAL_BLOCK <= len; ) {
+            // fixed trip count, so the JIT unrolls this block completely
+            for (int m = 0; m < VecKernels.PARTIAL_BLOCK; m += step) {
+                FloatVector d = FloatVector.fromArray(S, a, ao + n + m).sub(FloatVector.fromArray(S, b, bo + n + m));
+                acc = d.fma(d, acc);
+            }
+            n += VecKernels.PARTIAL_BLOCK;
+            if (n < len) {
+                float partial = acc.reduceLanes(VectorOperators.ADD);
+                if (partial > limit) return partial;
+            }
+        }
+        float out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) {
+            float d = a[ao + n] - b[bo + n];
+            out += d * d;
+        }
+        return out;
+    }
+
+    static int dotInt8(byte[] a, int ao, byte[] b, int bo, int len) {
+        final VectorSpecies<Integer> is = Int8.IS;
+        final VectorSpecies<Byte> bs = Int8.BS;
+        IntVector acc = IntVector.zero(is);
+        int n = 0;
+        for (int bound = bs.loopBound(len); n < bound; n += bs.length()) {
+            ByteVector ba = ByteVector.fromArray(bs, a, ao + n);
+            ByteVector bb = ByteVector.fromArray(bs, b, bo + n);
+            for (int p = 0; p < Int8.PARTS; p++) {
+                IntVector va = (IntVector) ba.castShape(is, p);
+                IntVector vb = (IntVector) bb.castShape(is, p);
+                acc = acc.add(va.mul(vb));
+            }
+        }
+        int out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) out += a[ao + n] * b[bo + n];
+        return out;
+    }
+
+    /** S.length() half lanes from <code>h[off..]</code> as fp32. fp16 lanes must be finite (no Inf/NaN). */
+    private static FloatVector widenHalf(short[] h, int off, boolean bf16) {
+        IntVector bits = (IntVector) ShortVector.fromArray(Half.SS, h, off)
+                .convertShape(VectorOperators.ZERO_EXTEND_S2I, Half.IS, 0);
+        if (bf16) return bits.lanewise(VectorOperators.LSHL, 16).reinterpretAsFloats();
+        IntVector sign = bits.and(0x8000).lanewise(VectorOperators.LSHL, 16);
+        IntVector magnitude = bits.and(0x7fff).lanewise(VectorOperators.LSHL, 13);
+        return sign.or(magnitude).reinterpretAsFloats().mul(Half.FP16_REBIAS);
+    }
+
+    static float dotHalf(short[] h, int ho, boolean bf16, float[] q, int qo, int len) {
+        FloatVector acc = FloatVector.zero(S);
+        int n = 0;
+        for (int bound = S.loopBound(len); n < bound; n += S.length()) {
+            acc = widenHalf(h, ho + n, bf16).fma(FloatVector.fromArray(S, q, qo + n), acc);
+        }
+        float out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) out += ScalarKernels.half(h[ho + n], bf16) * q[qo + n];
+        return out;
+    }
+
+    static float squareDistanceHalf(short[] h, int ho, boolean bf16, float[] q, int qo, int len) {
+        FloatVector acc = FloatVector.zero(S);
+        int n = 0;
+        for (int bound = S.loopBound(len); n < bound; n += S.length()) {
+            FloatVector d = widenHalf(h, ho + n, bf16).sub(FloatVector.fromArray(S, q, qo + n));
+            acc = d.fma(d, acc);
+        }
+        float out = acc.reduceLanes(VectorOperators.ADD);
+        for (; n < len; n++) {
+            float d = ScalarKernels.half(h[ho + n], bf16) - q[qo + n];
+            out += d * d;
+        }
+        return out;
+    }
+
+    static void dotBlock(float[] rows, int ro, int nRows, float[] queries, int nQueries, float[] out) {
+        final int D = Vec384f.DIM;
+        final int bound = S.loopBound(D);
+        for (int r = 0, off = ro; r < nRows; r++, off += D) {
+            final int base = r * nQueries;
+            int q = 0;
+            // 1 row x 4 queries register tile: each row load feeds four accumulators
+            for (; q + 4 <= nQueries; q += 4) {
+                final int q0 = q * D, q1 = q0 + D, q2 = q1 + D, q3 = q2 + D;
+                FloatVector a0 = FloatVector.zero(S), a1 = a0, a2 = a0, a3 = a0;
+                int n = 0;
+                for (; n < bound; n += S.length()) {
+                    FloatVector x = FloatVector.fromArray(S, rows, off + n);
+                    a0 = x.fma(FloatVector.fromArray(S, queries, q0 + n), a0);
+                    a1 = x.fma(FloatVector.fromArray(S, queries, q1 + n), a1);
+                    a2 = x.fma(FloatVector.fromArray(S, queries, q2 + n), a2);
+                    a3 = x.fma(FloatVector.fromArray(S, queries, q3 + n), a3);
+                }
+                float s0 = a0.reduceLanes(VectorOperators.ADD), s1 = a1.reduceLanes(VectorOperators.ADD);
+                float s2 = a2.reduceLanes(VectorOperators.ADD), s3 = a3.reduceLanes(VectorOperators.ADD);
+                for (; n < D; n++) {
+                    float x = rows[off + n];
+                    s0 += x * queries[q0 + n];
+                    s1 += x * queries[q1 + n];
+                    s2 += x * queries[q2 + n];
+                    s3 += x * queries[q3 + n];
+                }
+                out[base + q] = s0;
+                out[base + q + 1] = s1;
+                out[base + q + 2] = s2;
+                out[base + q + 3] = s3;
+            }
+            for (; q < nQueries; q++) out[base + q] = dot(rows, off, queries, q * D, D);
+        }
+    }
+
+    static void axpy(float[] y, int yo, float[] x, int xo, float s, int len) {
+        FloatVector vs = FloatVector.broadcast(S, s);
+        int n = 0;
+        for (int bound = S.loopBound(len); n < bound; n += S.length()) {
+            FloatVector vx = FloatVector.fromArray(S, x, xo + n);
+            FloatVector vy = FloatVector.fromArray(S, y, yo + n);
+            vx.fma(vs, vy).intoArray(y, yo + n);
+        }
+        for (; n < len; n++) y[yo + n] += x[xo + n] * s;
+    }
+
+    static void project(float[] obj, int oo, float[] you, int yo,
+                        float[] i, float[] j, float[] k, float[] out, int outOff) {
+        FloatVector ax = FloatVector.zero(S), ay = FloatVector.zero(S), az = FloatVector.zero(S);
+        int n = 0;
+        for (int bound = S.loopBound(Vec384f.DIM); n < bound; n += S.length()) {
+            FloatVector d = FloatVector.fromArray(S, obj, oo + n).sub(FloatVector.fromArray(S, you, yo + n));
+            ax = d.fma(FloatVector.fromArray(S, i, n), ax);
+            ay = d.fma(FloatVector.fromArray(S, j, n), ay);
+            az = d.fma(FloatVector.fromArray(S, k, n), az);
+        }
+        float x = ax.reduceLanes(VectorOperators.ADD);
+        float y = ay.reduceLanes(VectorOperators.ADD);
+        float z = az.reduceLanes(VectorOperators.ADD);
+        for (; n < Vec384f.DIM; n++) {
+            float d = obj[oo + n] - you[yo + n];
+            x += d * i[n];
+            y += d * j[n];
+            z += d * k[n];
+        }
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    static void projectRows(float[] rows, int n, float[] i, float[] j, float[] k,
+                            float ox, float oy, float oz, float scale, float[] out) {
+        final int bound = S.loopBound(Vec384f.DIM);
+        for (int r = 0, ro = 0; r < n; r++, ro += Vec384f.DIM) {
+            FloatVector ax = FloatVector.zero(S), ay = FloatVector.zero(S), az = FloatVector.zero(S);
+            int d = 0;
+            for (; d < bound; d += S.length()) {
+                FloatVector o = FloatVector.fromArray(S, rows, ro + d);
+                ax = o.fma(FloatVector.fromArray(S, i, d), ax);
+                ay = o.fma(FloatVector.fromArray(S, j, d), ay);
+                az = o.fma(FloatVector.fromArray(S, k, d), az);
+            }
+            float x = ax.reduceLanes(VectorOperators.ADD);
+            float y = ay.reduceLanes(VectorOperators.ADD);
+            float z = az.reduceLanes(VectorOperators.ADD);
+            for (; d < Vec384f.DIM; d++) {
+                float o = rows[ro + d];
+                x += o * i[d];
+                y += o * j[d];
+                z += o * k[d];
+            }
+            out[3 * r] = (x - ox) * scale;
+            out[3 * r + 1] = (y - oy) * scale;
+            out[3 * r + 2] = (z - oz) * scale;
+        }
+    }
+
+    static void basisGram(float[] i, float[] j, float[] k, float[] a, float[] out) {
+        FloatVector ii = FloatVector.zero(S), jj = ii, kk = ii, ij = ii, ik = ii, jk = ii;
+        FloatVector ia = ii, ja = ii, ka = ii, aa = ii;
+        int n = 0;
+        for (int bound = S.loopBound(Vec384f.DIM); n < bound; n += S.length()) {
+            FloatVector vi = FloatVector.fromArray(S, i, n);
+            FloatVector vj = FloatVector.fromArray(S, j, n);
+            FloatVector vk = FloatVector.fromArray(S, k, n);
+            FloatVector va = FloatVector.fromArray(S, a, n);
+            ii = vi.fma(vi, ii); jj = vj.fma(vj, jj); kk = vk.fma(vk, kk);
+            ij = vi.fma(vj, ij); ik = vi.fma(vk, ik); jk = vj.fma(vk, jk);
+            ia = vi.fma(va, ia); ja = vj.fma(va, ja); ka = vk.fma(va, ka); aa = va.fma(va, aa);
+        }
+        FloatVector[] acc = {ii, jj, kk, ij, ik, jk, ia, ja, ka, aa};
+        for (int m = 0; m < acc.length; m++) out[m] = acc[m].reduceLanes(VectorOperators.ADD);
+        for (; n < Vec384f.DIM; n++) ScalarKernels.gramLane(i[n], j[n], k[n], a[n], out);
+    }
+
+    static void basisCombine(float[] i, float[] j, float[] k, float[] a, float[] c) {
+        final FloatVector c0 = FloatVector.broadcast(S, c[0]), c1 = FloatVector.broadcast(S, c[1]),
+                c2 = FloatVector.broadcast(S, c[2]), c3 = FloatVector.broadcast(S, c[3]),
+                c4 = FloatVector.broadcast(S, c[4]), c5 = FloatVector.broadcast(S, c[5]),
+                c6 = FloatVector.broadcast(S, c[6]), c7 = FloatVector.broadcast(S, c[7]),
+                c8 = FloatVector.broadcast(S, c[8]), c9 = FloatVector.broadcast(S, c[9]),
+                c10 = FloatVector.broadcast(S, c[10]), c11 = FloatVector.broadcast(S, c[11]);
+        int n = 0;
+        for (int bound = S.loopBound(Vec384f.DIM); n < bound; n += S.length()) {
+            FloatVector vi = FloatVector.fromArray(S, i, n);
+            FloatVector vj = FloatVector.fromArray(S, j, n);
+            FloatVector vk = FloatVector.fromArray(S, k, n);
+            FloatVector va = FloatVector.fromArray(S, a, n);
+            va.fma(c3, vk.fma(c2, vj.fma(c1, vi.mul(c0)))).intoArray(i, n);
+            va.fma(c7, vk.fma(c6, vj.fma(c5, vi.mul(c4)))).intoArray(j, n);
+            va.fma(c11, vk.fma(c10, vj.fma(c9, vi.mul(c8)))).intoArray(k, n);
+        }
+        for (; n < Vec384f.DIM; n++) ScalarKernels.combineLane(i, j, k, a, c, n);
+    }
+}
@@ -3,131 +3,249 @@ package io.github.mysticism.vector;
 import ai.djl.util.Pair;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 
-import static io.github.mysticism.Mysticism.LOGGER;
-
+/**
+ * Brute-force kNN over a map of frozen vectors.
+ * <p>
+ * Readers never lock: they scan the current {@link Snapshot}, an immutable array of slots
+ * published through a volatile field. Writers serialize on a single lock, apply one call's
+ * worth of mutations and publish the result as a new epoch. Appends fill slots past the
+ * published count, which no reader can see yet, so only replacements and removals pay for
+ * copying the slot arrays.
+ */
 public class SimpleKnnIndex implements KnnIndex {
-    private final HashMap<String, Vec384f> data;
-    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    /** One published epoch: slots <code>[0, count)</code> of <code>ids</code>/<code>vecs</code>. */
+    private record Snapshot(String[] ids, Vec384f[] vecs, int count, long epoch) {}
 
+    private final ReentrantLock writer = new ReentrantLock();
+    /** id -> slot in the latest arrays. Written under the writer lock; readers only use it as a hint. */
+    private final ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile Snapshot current = new Snapshot(new String[16], new Vec384f[16], 0, 0);
 
     public SimpleKnnIndex(HashMap<String, Vec384f> data) {
-        this.data = data;
+        String[] ids = new String[Math.max(16, data.size())];
+        Vec384f[] vecs = new Vec384f[ids.length];
+        int n = 0;
+        for (var e : data.entrySet()) {
+            ids[n] = e.getKey();
+            vecs[n] = e.getValue().frozenCopy();
+            slots.put(ids[n], n);
+            n++;
+        }
+        this.current = new Snapshot(ids, vecs, n, 0);
     }
 
     public SimpleKnnIndex() {
-        this.data = new HashMap<>();
     }
 
     public int size() {
-        rw.readLock().lock();
-        try { return data.size(); }
-        finally { rw.readLock().unlock(); }
+        return current.count();
     }
 
-    private static final long WRITE_WARN_MS = 2000;
+    /** Number of epochs published so far; bumps once per mutating call. */
+    public long epoch() {
+        return current.epoch();
+    }
 
-    public void upsert(String id, Vec384f v) {
-        long start = System.currentTimeMillis();
-        boolean ok = false;
-        try {
-            ok = rw.writeLock().tryLock(WRITE_WARN_MS, java.util.concurrent.TimeUnit.MILLISECONDS);
-            if (!ok) {
-                LOGGER.warn("[KNN] writeLock timeout acquiring for upsert('{}')", id);
-                rw.writeLock().lock(); // block & acquire anyway, but we log a warning
+    /* ----------------- writes ----------------- */
+
+    /**
+     * Writer lock held. Accumulates one call's mutations on top of the published epoch; the
+     * arrays are cloned lazily, the first time a visible slot has to change.
+     */
+    private final class Epoch {
+        private final Snapshot base = current;
+        private String[] ids = base.ids();
+        private Vec384f[] vecs = base.vecs();
+        private int count = base.count();
+        private boolean shared = true;
+
+        private void own() {
+            if (!shared) return;
+            ids = ids.clone();
+            vecs = vecs.clone();
+            shared = false;
+        }
+
+        Vec384f get(String id) {
+            Integer slot = slots.get(id);
+            return slot != null ? vecs[slot] : null;
+        }
+
+        /** Makes room for <code>extra</code> more slots in one resize. */
+        void reserve(int extra) {
+            if (count + extra <= ids.length) return;
+            ids = Arrays.copyOf(ids, count + extra);
+            vecs = Arrays.copyOf(vecs, count + extra);
+            shared = false;
+        }
+
+        void put(String id, Vec384f v) {
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                // visible to readers of the base epoch: never overwrite in place
+                if (slot < base.count()) own();
+                vecs[slot] = v;
+                return;
             }
-            this.data.put(id, v);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            rw.writeLock().lock(); // fall back to blocking
-            this.data.put(id, v);
-        } finally {
-            rw.writeLock().unlock();
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                vecs = Arrays.copyOf(vecs, count * 2);
+                shared = false;
+            }
+            // slots at or past base.count() are invisible to readers, so appends need no copy
+            ids[count] = id;
+            vecs[count] = v;
+            slots.put(id, count++);
+        }
+
+        boolean remove(String id) {
+            Integer slot = slots.remove(id);
+            if (slot == null) return false;
+            own();
+            int last = --count;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                vecs[slot] = vecs[last];
+                slots.put(ids[slot], slot);
+            }
+            ids[last] = null;
+            vecs[last] = null;
+            return true;
+        }
+
+        void publish() {
+            current = new Snapshot(ids, vecs, count, base.epoch() + 1);
         }
     }
 
+    public void upsert(String id, Vec384f vec) {
+        // stored vectors are frozen so reads can hand them out without copying
+        final Vec384f v = vec.frozenCopy();
+        writer.lock();
+        try {
+            Epoch e = new Epoch();
+            e.put(id, v);
+            e.publish();
+        } finally {
+            writer.unlock();
+        }
+    }
 
-    public Vec384f get(String id) {
-        rw.readLock().lock();
+    /** The whole map is published as a single epoch. */
+    @Override
+    public void upsertAll(Map<String, Vec384f> vectors) {
+        if (vectors.isEmpty()) return;
+        // freeze outside the lock
+        List<Map.Entry<String, Vec384f>> frozen = new ArrayList<>(vectors.size());
+        for (var e : vectors.entrySet()) frozen.add(Map.entry(e.getKey(), e.getValue().frozenCopy()));
+        writer.lock();
         try {
-            Vec384f v = this.data.get(id);
-            return v != null ? v.clone() : null;
+            Epoch e = new Epoch();
+            e.reserve(frozen.size());
+            for (var entry : frozen) e.put(entry.getKey(), entry.getValue());
+            e.publish();
         } finally {
-            rw.readLock().unlock();
+            writer.unlock();
         }
     }
 
+    public Vec384f get(String id) {
+        final Snapshot s = current;
+        // the slot map may already be ahead of this snapshot: confirm the hint, else scan
+        Integer slot = slots.get(id);
+        if (slot != null && slot < s.count() && id.equals(s.ids()[slot])) return s.vecs()[slot];
+        for (int i = 0; i < s.count(); i++) if (s.ids()[i].equals(id)) return s.vecs()[i];
+        return null;
+    }
+
     public void deltaUpdate(String id, Vec384f delta) {
-        rw.writeLock().lock();
+        writer.lock();
         try {
-            this.data.computeIfAbsent(id, k -> Vec384f.ZERO()).add(delta);
+            Epoch e = new Epoch();
+            Vec384f old = e.get(id);
+            e.put(id, (old != null ? old.mutableCopy() : Vec384f.ZERO()).add(delta).freeze());
+            e.publish();
         } finally {
-            rw.writeLock().unlock();
+            writer.unlock();
         }
     }
 
-    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
-        if (k <= 0) return new ArrayList<>();
+    public boolean remove(String id) {
+        writer.lock();
+        try {
+            Epoch e = new Epoch();
+            if (!e.remove(id)) return false;
+            e.publish();
+            return true;
+        } finally {
+            writer.unlock();
+        }
+    }
 
-        List<Map.Entry<String, Vec384f>> snapshot;
-        rw.readLock().lock();
+    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
+        writer.lock();
         try {
-            snapshot = new ArrayList<>(data.entrySet());
+            // the whole batch lands in a single epoch
+            Epoch e = new Epoch();
+            for (String key : affectedKeys) {
+                Vec384f old = e.get(key);
+                e.put(key, (old != null ? old.mutableCopy() : Vec384f.ZERO()).converge(target, factor).freeze());
+            }
+            e.publish();
         } finally {
-            rw.readLock().unlock();
+            writer.unlock();
         }
+    }
 
-        PriorityQueue<Pair<String, Float>> heap = new PriorityQueue<>(Comparator.comparingDouble(Pair::getValue));
+    /* ----------------- reads ----------------- */
 
-        for (Map.Entry<String, Vec384f> entry : snapshot) {
+    /** Best k slots of <code>s</code>, best first, in this thread's {@link TopK}. */
+    private static TopK search(Snapshot s, int k, Vec384f query, Metric metric) {
+        final Vec384f[] vecs = s.vecs();
+        final float queryInv = query.invLength();
+        final TopK best = TopK.local(Math.min(k, s.count()));
+
+        for (int i = 0; i < s.count(); i++) {
             float score = switch (metric) {
-                case COSINE -> entry.getValue().cosine(query);
-                case DOT -> entry.getValue().dot(query);
-                // PriorityQueue is minheap, must flip Euclidean since we want smaller = closer
-                case EUCLIDEAN -> -1.f * entry.getValue().squareDistance(query);
+                case COSINE -> Vec384f.cosine(vecs[i], query, queryInv);
+                case DOT -> Vec384f.dot(vecs[i], query);
+                // the selector keeps the biggest scores, so flip Euclidean: smaller = closer
+                case EUCLIDEAN -> -1.f * Vec384f.squareDistance(vecs[i], query);
             };
-
-            if (heap.size() < k)
-                heap.add(new Pair<>(entry.getKey(), score));
-            else {
-                // we already early return if k == 0
-                // so this branch only triggers if heap already has elements
-                assert heap.peek() != null;
-                if (score > heap.peek().getValue()) { // if better than the current worst one
-                    heap.poll();
-                    heap.add(new Pair<>(entry.getKey(), score));
-                }
-            }
+            best.offer(i, score);
         }
+        best.sortDescending();
+        return best;
+    }
 
-        return new ArrayList<>(heap);
-
+    public List<Pair<String, Float>> kNN(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final Snapshot s = current;
+        final TopK best = search(s, k, query, metric);
+        // the only allocations: the result pairs themselves
+        List<Pair<String, Float>> out = new ArrayList<>(best.size());
+        for (int i = 0; i < best.size(); i++) out.add(new Pair<>(s.ids()[best.ordinal(i)], best.score(i)));
+        return out;
     }
 
-    public void converge(List<String> affectedKeys, Vec384f target, float factor) {
-        rw.writeLock().lock();
-        try {
-            for (String key : affectedKeys)
-                this.data.computeIfAbsent(key, k -> Vec384f.ZERO()).converge(target, factor);
-        } finally { rw.writeLock().unlock(); }
+    @Override
+    public List<String> nearestIds(int k, Vec384f query, Metric metric) {
+        if (k <= 0) return new ArrayList<>();
+        final Snapshot s = current;
+        final TopK best = search(s, k, query, metric);
+        List<String> out = new ArrayList<>(best.size());
+        for (int i = 0; i < best.size(); i++) out.add(s.ids()[best.ordinal(i)]);
+        return out;
     }
 
     public void forEach(BiConsumer<String, Vec384f> consumer) {
-        List<Map.Entry<String, Vec384f>> snapshot;
-        rw.readLock().lock();
-        try {
-            snapshot = new ArrayList<>(data.entrySet());
-        } finally {
-            rw.readLock().unlock();
-        }
-        // Iterate with NO lock held
-        for (var e : snapshot) {
-            Vec384f copy = e.getValue() != null ? e.getValue().clone() : null;
-            consumer.accept(e.getKey(), copy);
-        }
+        // the snapshot is immutable and values are frozen, so no copies and no lock
+        final Snapshot s = current;
+        for (int i = 0; i < s.count(); i++) consumer.accept(s.ids()[i], s.vecs()[i]);
     }
 
 }
-
@@ -0,0 +1,126 @@
+package io.github.mysticism.vector;
+
+import java.util.Arrays;
+
+/**
+ * Bounded top-k selector over primitive (ordinal, score) pairs; bigger score = better.
+ * <p>
+ * Backed by a min-heap in two parallel arrays, so offering a candidate never allocates.
+ * Call {@link #sortDescending()} once at the end to get best-first order.
+ */
+public final class TopK {
+    private static final ThreadLocal<TopK> LOCAL = ThreadLocal.withInitial(() -> new TopK(64));
+
+    private int[] ords;
+    private float[] scores;
+    private int capacity;
+    private int size;
+
+    public TopK(int capacity) {
+        this.ords = new int[Math.max(1, capacity)];
+        this.scores = new float[Math.max(1, capacity)];
+        this.capacity = capacity;
+    }
+
+    /** Empties the selector and sets a new bound, growing the arrays only if needed. */
+    public TopK reset(int capacity) {
+        if (capacity > ords.length) {
+            this.ords = new int[capacity];
+            this.scores = new float[capacity];
+        }
+        this.capacity = capacity;
+        this.size = 0;
+        return this;
+    }
+
+    /**
+     * This thread's reusable selector, reset to <code>capacity</code>. For the final selection of
+     * a search that copies its results out before returning; never hand it to another thread
+     * (e.g. a {@link ParallelScan} partition) or hold it across calls.
+     */
+    static TopK local(int capacity) {
+        return LOCAL.get().reset(capacity);
+    }
+
+    public int size() { return size; }
+    public int capacity() { return capacity; }
+    public boolean isFull() { return size >= capacity; }
+
+    /** Worst score currently kept, or -∞ while the selector is not yet full. */
+    public float threshold() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(int ord, float score) {
+        if (capacity <= 0) return;
+        if (size < capacity) {
+            int i = size++;
+            // sift up
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) break;
+                ords[i] = ords[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ords[i] = ord;
+            scores[i] = score;
+        } else if (score > scores[0]) {
+            siftDown(0, ord, score, size);
+        }
+    }
+
+    private void siftDown(int i, int ord, float score, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && scores[child + 1] < scores[child]) child++;
+            if (scores[child] >= score) break;
+            ords[i] = ords[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ords[i] = ord;
+        scores[i] = score;
+    }
+
+    /**
+     * In-place heapsort into best-first order. After this, {@link #ordinal(int)}/{@link #score(int)}
+     * index ranks (0 = best) and the selector must be {@link #reset(int)} before offering again.
+     */
+    public void sortDescending() {
+        for (int n = size - 1; n > 0; n--) {
+            int o = ords[n];
+            float s = scores[n];
+            ords[n] = ords[0];
+            scores[n] = scores[0];
+            siftDown(0, o, s, n);
+        }
+    }
+
+    /** Overwrites the score at rank <code>i</code> of a sorted selector; follow with {@link #resortDescending()}. */
+    void setScore(int i, float score) {
+        scores[i] = score;
+    }
+
+    /** Restores best-first order after {@link #setScore}; insertion sort, as rescoring only swaps near-ties. */
+    void resortDescending() {
+        for (int i = 1; i < size; i++) {
+            int o = ords[i];
+            float s = scores[i];
+            int j = i;
+            for (; j > 0 && scores[j - 1] < s; j--) {
+                ords[j] = ords[j - 1];
+                scores[j] = scores[j - 1];
+            }
+            ords[j] = o;
+            scores[j] = s;
+        }
+    }
+
+    public int ordinal(int i) { return ords[i]; }
+    public float score(int i) { return scores[i]; }
+
+    public int[] ordinals() { return Arrays.copyOf(ords, size); }
+    public float[] scores() { return Arrays.copyOf(scores, size); }
+}
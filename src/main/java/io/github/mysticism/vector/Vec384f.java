@@ -1,53 +1,121 @@
 package io.github.mysticism.vector;
 
 public class Vec384f implements Cloneable {
+    public static final int DIM = 384;
+
     public static Vec384f ZERO() {
-        return new Vec384f(new float[384], new float[384], false);
+        return new Vec384f(new float[384], 0f);
     }
 
     final float[] data;
-    final float[] norm;
-    private boolean dirty = false;
+    /**
+     * Cached 1/|data|; NaN means stale. Mutators reset it under the monitor, so mutable vectors
+     * recompute it under the monitor too; frozen ones may race, since every thread gets the same value.
+     * This replaces the old normalized shadow array, so a vector is just its 384 floats.
+     */
+    private volatile float invLength;
+    /**
+     * Once set, the data never changes again, so the instance can be shared (index reads,
+     * caches, snapshots) without defensive copies. Freeze before publishing to other threads.
+     */
+    private boolean frozen = false;
 
 
     public Vec384f(float[] vec) {
         if (vec.length != 384)
             throw new IllegalArgumentException("dim mismatch: " + vec.length + " != 384");
         this.data = vec.clone();
-        this.norm = new float[384];
-        this.dirty = true;
+        this.invLength = Float.NaN;
+    }
+
+    /** Wraps <code>vec</code> without copying; the caller hands over ownership. */
+    Vec384f(float[] vec, float invLength) {
+        this.data = vec;
+        this.invLength = invLength;
+    }
+
+    static Vec384f wrap(float[] vec) {
+        return new Vec384f(vec, Float.NaN);
     }
 
+    /** Eagerly refreshes the cached length (it is otherwise recomputed lazily). */
     public synchronized void updateNorm() {
+        this.invLength = this.computeInvLength();
+    }
+
+    /**
+     * 1/|v| (0 for the zero vector), cached until the next mutation. Lock-free once cached, and
+     * always lock-free for frozen vectors. A mutable vector recomputes under its monitor: an
+     * unlocked recompute could read the old data and store its norm after a concurrent mutator
+     * had already reset the cache, leaving a stale value behind.
+     */
+    public float invLength() {
+        float inv = this.invLength;
+        if (!Float.isNaN(inv)) return inv;
+        if (this.frozen) return this.invLength = this.computeInvLength();
+        synchronized (this) {
+            inv = this.invLength;
+            if (Float.isNaN(inv)) this.invLength = inv = this.computeInvLength();
+            return inv;
+        }
+    }
+
+    private float computeInvLength() {
         float len = this.length();
-        if (len > 0) for (int i = 0; i < 384; i ++)
-            this.norm[i] = this.data[i] / len;
-        dirty = false;
+        return len > 0 ? 1f / len : 0f;
+    }
+
+    /** Sets the cached 1/|v| from a length the caller derived without a pass over the data. */
+    synchronized void setInvLength(float inv) {
+        this.invLength = inv;
+    }
+
+    private void invalidate() {
+        this.invLength = Float.NaN;
+    }
+
+    void checkMutable() {
+        if (this.frozen) throw new IllegalStateException("Vec384f is frozen; take a mutableCopy() first");
+    }
+
+    /** Marks this vector immutable (in place) and returns it. */
+    public Vec384f freeze() {
+        this.frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /** Copy-on-write: returns <code>this</code> if already frozen, otherwise a frozen copy. */
+    public Vec384f frozenCopy() {
+        return this.frozen ? this : this.clone().freeze();
     }
 
-    private synchronized float[] _norm() {
-        if (this.dirty) this.updateNorm();
-        return this.norm;
+    /** Explicit mutable builder: always a fresh, unfrozen copy (same as {@link #clone()}). */
+    public Vec384f mutableCopy() {
+        return this.clone();
     }
 
+    /** @return a fresh unit-length copy of this vector (all zeros for the zero vector). */
     public float[] norm() {
-        return this._norm().clone();
+        float[] out = new float[384];
+        VecKernels.axpy(out, this.data, this.invLength());
+        return out;
     }
 
     public float[] data() {
         return this.data.clone();
     }
 
-    Vec384f(float[] vec, float[] norm, boolean dirty) {
-        this.data = vec;
-        this.norm = norm;
-        this.dirty = dirty;
+    /** Copies the 384 components into <code>dst[off..off+384)</code>, e.g. to pack a row-major matrix. */
+    public void copyInto(float[] dst, int off) {
+        System.arraycopy(this.data, 0, dst, off, DIM);
     }
 
     public float l2sq() {
-        float l = 0;
-        for (float v : this.data) l += v * v;
-        return l;
+        return VecKernels.dot(this.data, this.data);
     }
 
     public float length() {
@@ -55,65 +123,87 @@ public class Vec384f implements Cloneable {
     }
 
     public synchronized Vec384f add(Vec384f other) {
+        this.checkMutable();
         for (int i = 0; i < 384; i++) {
             this.data[i] += other.data[i];
         }
-        this.dirty = true;
+        this.invalidate();
         return this;
     }
 
     public synchronized Vec384f sub(Vec384f other) {
+        this.checkMutable();
         for (int i = 0; i < 384; i++) {
             this.data[i] -= other.data[i];
         }
-        this.dirty = true;
+        this.invalidate();
+        return this;
+    }
+
+    /** this := this + factor * other, without materializing the scaled copy. */
+    public synchronized Vec384f addScaled(Vec384f other, float factor) {
+        this.checkMutable();
+        VecKernels.axpy(this.data, other.data, factor);
+        this.invalidate();
         return this;
     }
 
     public synchronized Vec384f mul(float factor) {
+        this.checkMutable();
         for (int i = 0; i < 384; i++) {
             this.data[i] *= factor;
         }
-
+        this.invalidate();
         return this;
     }
 
     public synchronized Vec384f converge(Vec384f target, float factor) {
+        this.checkMutable();
         for (int i = 0; i < 384; i++) {
             float difference = target.data[i] - this.data[i];
 
             this.data[i] += difference * factor;
         }
-        this.dirty = true;
+        this.invalidate();
         return this;
     }
 
+    /** @return a mutable copy, even if this vector is frozen. */
     public Vec384f clone() {
         synchronized (this) {
-            return new Vec384f(this.data.clone(), this.norm.clone(), this.dirty);
+            return new Vec384f(this.data.clone(), this.invLength);
         }
     }
 
     public float dot(Vec384f other) {
-        float out = 0;
-        for (int i = 0; i < 384; i++) {
-            out += this.data[i] * other.data[i];
-        }
-
-        return out;
+        return dot(this, other);
     }
 
     public float squareDistance(Vec384f other) {
-        return this.clone().sub(other).l2sq();
+        return squareDistance(this, other);
     }
 
     public float cosine(Vec384f other) {
-        float out = 0;
-        for (int i = 0; i < 384; i++) {
-            out += this._norm()[i] * other._norm()[i];
-        }
+        return cosine(this, other);
+    }
 
-        return out;
+    /* ----------------- static kernels (no allocation, no locking) ----------------- */
+
+    public static float dot(Vec384f a, Vec384f b) {
+        return VecKernels.dot(a.data, b.data);
+    }
+
+    public static float squareDistance(Vec384f a, Vec384f b) {
+        return VecKernels.squareDistance(a.data, b.data);
+    }
+
+    public static float cosine(Vec384f a, Vec384f b) {
+        return cosine(a, b, b.invLength());
+    }
+
+    /** Cosine against a query whose inverse length was hoisted out of the scan loop. */
+    public static float cosine(Vec384f a, Vec384f query, float queryInvLength) {
+        return VecKernels.dot(a.data, query.data) * a.invLength() * queryInvLength;
     }
 
     public int[] toBits() {
@@ -125,6 +215,6 @@ public class Vec384f implements Cloneable {
     public static Vec384f fromBits(int[] bits) {
         float[] f = new float[384];
         for (int i = 0; i < 384; i++) f[i] = Float.intBitsToFloat(bits[i]);
-        return new Vec384f(f, new float[384], true);
+        return wrap(f);
     }
 }
@@ -0,0 +1,185 @@
+package io.github.mysticism.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hot-loop kernels over raw float arrays (offset + length addressed).
+ * <p>
+ * Dispatches to {@link SimdKernels} when the JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>, otherwise falls back to {@link ScalarKernels}.
+ * Setting <code>-Dmysticism.vector.scalar=true</code> forces the scalar path.
+ */
+public final class VecKernels {
+    private static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-VecKernels");
+
+    /** Resolved once; the JIT folds the branch in every kernel below. */
+    public static final boolean SIMD = detectSimd();
+    /** SIMD int8 kernel; off on its own if the host has no byte shape to widen from. */
+    static final boolean SIMD_INT8 = SIMD && detectSimdInt8();
+    /** SIMD fp16/bf16 kernels; off on their own if the host has no short shape to widen from. */
+    static final boolean SIMD_HALF = SIMD && detectSimdHalf();
+
+    private VecKernels() {}
+
+    private static boolean detectSimd() {
+        if (Boolean.getBoolean("mysticism.vector.scalar")) {
+            LOGGER.info("Scalar vector kernels forced by -Dmysticism.vector.scalar");
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            LOGGER.info("jdk.incubator.vector not enabled; using scalar vector kernels (add --add-modules jdk.incubator.vector)");
+            return false;
+        }
+        try {
+            int lanes = SimdKernels.S.length();
+            if (lanes < 4) {
+                LOGGER.info("Preferred float species only has {} lanes; using scalar vector kernels", lanes);
+                return false;
+            }
+            LOGGER.info("Using SIMD vector kernels ({} float lanes)", lanes);
+            return true;
+        } catch (Throwable t) {
+            LOGGER.warn("Failed to initialize SIMD vector kernels, using scalar fallback: {}", t.toString());
+            return false;
+        }
+    }
+
+    private static boolean detectSimdInt8() {
+        try {
+            LOGGER.debug("SIMD int8 kernel: {} byte lanes widened into {} int vector(s)",
+                    SimdKernels.Int8.BS.length(), SimdKernels.Int8.PARTS);
+            return true;
+        } catch (Throwable t) {
+            LOGGER.warn("SIMD int8 kernel unavailable, using the scalar one: {}", t.toString());
+            return false;
+        }
+    }
+
+    private static boolean detectSimdHalf() {
+        try {
+            LOGGER.debug("SIMD half kernels: {} short lanes widened into {} float lanes",
+                    SimdKernels.Half.SS.length(), SimdKernels.Half.IS.length());
+            return true;
+        } catch (Throwable t) {
+            LOGGER.warn("SIMD half kernels unavailable, using the scalar ones: {}", t.toString());
+            return false;
+        }
+    }
+
+    /** &lt;a, b&gt; over <code>len</code> lanes. */
+    public static float dot(float[] a, int ao, float[] b, int bo, int len) {
+        return SIMD ? SimdKernels.dot(a, ao, b, bo, len) : ScalarKernels.dot(a, ao, b, bo, len);
+    }
+
+    /** &lt;a, b&gt; over a full 384-d vector. */
+    public static float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, Vec384f.DIM);
+    }
+
+    /** |a - b|² over <code>len</code> lanes. */
+    public static float squareDistance(float[] a, int ao, float[] b, int bo, int len) {
+        return SIMD ? SimdKernels.squareDistance(a, ao, b, bo, len) : ScalarKernels.squareDistance(a, ao, b, bo, len);
+    }
+
+    /** |a - b|² over a full 384-d vector. */
+    public static float squareDistance(float[] a, float[] b) {
+        return squareDistance(a, 0, b, 0, Vec384f.DIM);
+    }
+
+    /**
+     * |a - b|² with early exit: the running sum is checked every {@link #PARTIAL_BLOCK} lanes and,
+     * once it exceeds <code>limit</code>, that partial sum (already &gt; limit) is returned.
+     * Exact whenever the result is &lt;= limit.
+     */
+    public static float squareDistanceBounded(float[] a, int ao, float[] b, int bo, int len, float limit) {
+        return SIMD ? SimdKernels.squareDistanceBounded(a, ao, b, bo, len, limit)
+                : ScalarKernels.squareDistanceBounded(a, ao, b, bo, len, limit);
+    }
+
+    /** Lanes between early-exit checks in {@link #squareDistanceBounded}: a third of a 384-d row, since each check costs a horizontal reduce. */
+    public static final int PARTIAL_BLOCK = 128;
+
+    /** Integer dot product of two int8 code rows (no overflow for 384 lanes of ±127). */
+    public static int dotInt8(byte[] a, int ao, byte[] b, int bo, int len) {
+        return SIMD_INT8 ? SimdKernels.dotInt8(a, ao, b, bo, len) : ScalarKernels.dotInt8(a, ao, b, bo, len);
+    }
+
+    /**
+     * &lt;h, q&gt; where <code>h</code> holds fp16 or bf16 bit patterns, widened to fp32 in-register:
+     * the stored row is read once, at 2 bytes a lane, and never decoded into a scratch array.
+     * fp16 lanes must be finite; {@link Half384f} routes rows with Inf/NaN elsewhere.
+     */
+    public static float dotHalf(short[] h, int ho, Half384f.Format format, float[] q, int qo, int len) {
+        final boolean bf16 = format == Half384f.Format.BF16;
+        return SIMD_HALF ? SimdKernels.dotHalf(h, ho, bf16, q, qo, len) : ScalarKernels.dotHalf(h, ho, bf16, q, qo, len);
+    }
+
+    /** |h - q|² with <code>h</code> widened in-register, as in {@link #dotHalf}. */
+    public static float squareDistanceHalf(short[] h, int ho, Half384f.Format format, float[] q, int qo, int len) {
+        final boolean bf16 = format == Half384f.Format.BF16;
+        return SIMD_HALF ? SimdKernels.squareDistanceHalf(h, ho, bf16, q, qo, len)
+                : ScalarKernels.squareDistanceHalf(h, ho, bf16, q, qo, len);
+    }
+
+    /**
+     * Small GEMM: dot products of <code>nRows</code> row-major 384-d rows starting at
+     * <code>rows[ro]</code> against <code>nQueries</code> packed 384-d queries, written to
+     * <code>out[r * nQueries + q]</code>. Each row is streamed once per group of four queries.
+     */
+    public static void dotBlock(float[] rows, int ro, int nRows, float[] queries, int nQueries, float[] out) {
+        if (SIMD) SimdKernels.dotBlock(rows, ro, nRows, queries, nQueries, out);
+        else ScalarKernels.dotBlock(rows, ro, nRows, queries, nQueries, out);
+    }
+
+    /** y := y + s * x (in place). */
+    public static void axpy(float[] y, int yo, float[] x, int xo, float s, int len) {
+        if (SIMD) SimdKernels.axpy(y, yo, x, xo, s, len);
+        else ScalarKernels.axpy(y, yo, x, xo, s, len);
+    }
+
+    /** y := y + s * x over a full 384-d vector (in place). */
+    public static void axpy(float[] y, float[] x, float s) {
+        axpy(y, 0, x, 0, s, Vec384f.DIM);
+    }
+
+    /**
+     * Fused 384D → 3D projection: writes (&lt;obj - you, i&gt;, &lt;obj - you, j&gt;, &lt;obj - you, k&gt;)
+     * into <code>out[outOff..outOff+2]</code>.
+     */
+    public static void project(float[] obj, int oo, float[] you, int yo,
+                               float[] i, float[] j, float[] k, float[] out, int outOff) {
+        if (SIMD) SimdKernels.project(obj, oo, you, yo, i, j, k, out, outOff);
+        else ScalarKernels.project(obj, oo, you, yo, i, j, k, out, outOff);
+    }
+
+    /**
+     * Batched projection of <code>n</code> row-major 384-d rows: writes
+     * <code>scale * (&lt;row, i&gt; - ox, &lt;row, j&gt; - oy, &lt;row, k&gt; - oz)</code>
+     * into <code>out[3r..3r+2]</code>. One sweep per row feeds all three axes.
+     */
+    public static void projectRows(float[] rows, int n, float[] i, float[] j, float[] k,
+                                   float ox, float oy, float oz, float scale, float[] out) {
+        if (SIMD) SimdKernels.projectRows(rows, n, i, j, k, ox, oy, oz, scale, out);
+        else ScalarKernels.projectRows(rows, n, i, j, k, ox, oy, oz, scale, out);
+    }
+
+    /**
+     * One sweep over a basis (i, j, k) and a fourth vector a, writing the 10 distinct Gram entries
+     * into <code>out</code> as (ii, jj, kk, ij, ik, jk, ia, ja, ka, aa).
+     */
+    public static void basisGram(float[] i, float[] j, float[] k, float[] a, float[] out) {
+        if (SIMD) SimdKernels.basisGram(i, j, k, a, out);
+        else ScalarKernels.basisGram(i, j, k, a, out);
+    }
+
+    /**
+     * In-place linear update of a basis from itself and a: with <code>c</code> a row-major 3×4
+     * matrix, i := c0 i + c1 j + c2 k + c3 a, and likewise j (c4..c7) and k (c8..c11).
+     * Every lane reads the old values before writing, so no scratch copies are needed.
+     */
+    public static void basisCombine(float[] i, float[] j, float[] k, float[] a, float[] c) {
+        if (SIMD) SimdKernels.basisCombine(i, j, k, a, c);
+        else ScalarKernels.basisCombine(i, j, k, a, c);
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.mysticism.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+/**
+ * Off-heap store of 384-d float rows addressed by int ordinal.
+ * <p>
+ * Rows are packed back to back into direct-buffer slabs of {@link #SLAB_ROWS} rows each, so a
+ * whole index is a handful of objects to the GC instead of one <code>float[]</code> per vector,
+ * and a scan streams each slab linearly. Slabs are never moved once allocated; growth only
+ * appends a slab.
+ * <p>
+ * Not thread-safe: the owning index serializes writes and guards reads.
+ */
+public final class VectorArena {
+    private static final int DIM = Vec384f.DIM;
+    /** 4096 rows × 1536 bytes = 6 MiB per slab. */
+    public static final int SLAB_ROWS = 4096;
+
+    private static final float[] ZERO_ROW = new float[DIM];
+
+    private final ArrayList<FloatBuffer> slabs = new ArrayList<>();
+    private int size = 0;
+
+    /** Number of rows allocated so far. */
+    public int size() {
+        return size;
+    }
+
+    /** Appends a zeroed row and returns its ordinal. */
+    public int allocate() {
+        int ord = size;
+        if (ord / SLAB_ROWS >= slabs.size()) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_ROWS * DIM * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer());
+        }
+        size++;
+        return ord;
+    }
+
+    /** Drops (and zeroes) the last row; its slab stays allocated for the next {@link #allocate()}. */
+    public void removeLast() {
+        write(size - 1, ZERO_ROW, 0);
+        size--;
+    }
+
+    private FloatBuffer slab(int ord) {
+        if (ord < 0 || ord >= size) throw new IndexOutOfBoundsException("ordinal " + ord + " of " + size);
+        return slabs.get(ord / SLAB_ROWS);
+    }
+
+    /** Overwrites row <code>ord</code> with <code>src[off..off+384)</code>. */
+    public void write(int ord, float[] src, int off) {
+        slab(ord).put((ord % SLAB_ROWS) * DIM, src, off, DIM);
+    }
+
+    /** Copies row <code>ord</code> into <code>dst[off..off+384)</code>. */
+    public void read(int ord, float[] dst, int off) {
+        slab(ord).get((ord % SLAB_ROWS) * DIM, dst, off, DIM);
+    }
+
+    /** Zero-copy, read-only view of row <code>ord</code> (384 floats, position 0). */
+    public FloatBuffer view(int ord) {
+        return slab(ord).slice((ord % SLAB_ROWS) * DIM, DIM).asReadOnlyBuffer();
+    }
+
+    /**
+     * Bulk-copies up to <code>maxRows</code> consecutive rows starting at <code>first</code> into
+     * <code>dst</code> (row-major, from index 0), stopping early at a slab boundary or the end of the
+     * arena. Scans stage blocks this way so the float[] kernels can run over them.
+     *
+     * @return The number of rows copied.
+     */
+    public int readBlock(int first, int maxRows, float[] dst) {
+        FloatBuffer s = slab(first);
+        int inSlab = first % SLAB_ROWS;
+        int rows = Math.min(maxRows, Math.min(SLAB_ROWS - inSlab, size - first));
+        s.get(inSlab * DIM, dst, 0, rows * DIM);
+        return rows;
+    }
+}
@@ -275,7 +275,7 @@ public final class HorizonSeeder {
                 Random r = new Random(h);
                 float[] d = new float[384];
                 for (int i = 0; i < 384; i++) d[i] += (r.nextFloat() - 0.5f) * 1e-4f;
-                Vec384f vec = baseVec.add(new Vec384f(d));
+                Vec384f vec = baseVec.mutableCopy().add(new Vec384f(d)).freeze();
 
                 world.getServer().execute(() -> {
                     if (!state.regionsView().containsKey(id)) {
@@ -7,8 +7,8 @@ import com.mojang.serialization.Dynamic;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import io.github.mysticism.Codecs;
 import io.github.mysticism.vector.KnnIndex;
+import io.github.mysticism.vector.KnnIndexKind;
 import io.github.mysticism.vector.Metric;
-import io.github.mysticism.vector.SimpleKnnIndex;
 import io.github.mysticism.vector.Vec384f;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtOps;
@@ -23,13 +23,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 public class ItemEmbeddingIndexState extends PersistentState {
     private static final String SAVE_KEY = "mysticism.item_index";
     public static final Logger LOGGER = LoggerFactory.getLogger("Mysticism-ItemEmbeddingIndexState");
 
-    private final KnnIndex index = new SimpleKnnIndex();
+    /** Backing index kind; override with -Dmysticism.item_index=&lt;KnnIndexKind&gt;. */
+    private static final KnnIndexKind INDEX_KIND = KnnIndexKind.fromProperty("mysticism.item_index", KnnIndexKind.FLAT);
+
+    private final KnnIndex index = INDEX_KIND.create();
     private boolean populated = false;
     public KnnIndex getIndex() { return index; }
     public boolean isPopulated() { return populated; }
@@ -45,10 +49,7 @@ public class ItemEmbeddingIndexState extends PersistentState {
     private static ItemEmbeddingIndexState fromSnapshot(Map<String, Vec384f> snapshot, boolean populated) {
         LOGGER.info("Loading item embeddings from snapshot...");
         ItemEmbeddingIndexState s = new ItemEmbeddingIndexState();
-        snapshot.forEach((id, v) -> {
-            s.index.upsert(id, v);
-//            LOGGER.info("Loading embedding for {}", id);
-        });
+        s.index.upsertAll(snapshot);
         s.populated = populated;
         return s;
     }
@@ -57,8 +58,8 @@ public class ItemEmbeddingIndexState extends PersistentState {
     private Map<String, Vec384f> snapshot() {
         LOGGER.info("Creating snapshot...");
         Map<String, Vec384f> out = new HashMap<>();
-        // Use the index's safe iterator if you have one
-        index.forEach((id, vec) -> out.put(id, vec.clone()));
+        // Index vectors are frozen, so the snapshot can share them
+        index.forEach(out::put);
         return out;
     }
 
@@ -125,10 +126,30 @@ public class ItemEmbeddingIndexState extends PersistentState {
         return true;
     }
 
+    /** Removes every indexed id not in <code>known</code> (e.g. items renamed or dropped since the last save). */
+    public int pruneMissing(Set<String> known) {
+        List<String> stale = new ArrayList<>();
+        this.index.forEach((id, v) -> { if (!known.contains(id)) stale.add(id); });
+        for (String id : stale) this.index.remove(id);
+        if (!stale.isEmpty()) {
+            LOGGER.info("Pruned {} stale item embeddings", stale.size());
+            this.markDirty();
+        }
+        return stale.size();
+    }
+
     public List<String> nearestIds(int k, Vec384f q) {
-        List<String> out = new ArrayList<>();
-        for (var i : this.index.kNN(k, q, Metric.EUCLIDEAN)) out.add(i.getKey());
+        return this.index.nearestIds(k, q, Metric.EUCLIDEAN);
+    }
 
+    /** {@link #nearestIds(int, Vec384f)} for several queries in one pass over the index. */
+    public List<List<String>> nearestIdsBatch(int k, List<Vec384f> qs) {
+        List<List<String>> out = new ArrayList<>(qs.size());
+        for (List<Pair<String, Float>> hits : this.index.kNNBatch(k, qs, Metric.EUCLIDEAN)) {
+            List<String> ids = new ArrayList<>(hits.size());
+            for (Pair<String, Float> hit : hits) ids.add(hit.getKey());
+            out.add(ids);
+        }
         return out;
     }
 
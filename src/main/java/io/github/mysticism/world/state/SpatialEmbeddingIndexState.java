@@ -4,17 +4,23 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.Dynamic;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import io.github.mysticism.Codecs;
+import io.github.mysticism.vector.KnnFilter;
 import io.github.mysticism.vector.KnnIndex;
-import io.github.mysticism.vector.SimpleKnnIndex;
+import io.github.mysticism.vector.KnnIndexKind;
+import io.github.mysticism.vector.PqCodebook;
+import io.github.mysticism.vector.PqKnnIndex;
 import io.github.mysticism.vector.Vec384f;
 import io.github.mysticism.world.region.impl.BiomeSpiritualRegion;
 import io.github.mysticism.world.region.ISpiritualRegion;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtOps;
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.RegistryKeys;
 import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.world.PersistentState;
+import net.minecraft.world.biome.Biome;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,33 +38,57 @@ public class SpatialEmbeddingIndexState extends PersistentState {
     private static final Codec<Map<String, BiomeSpiritualRegion>> BIOME_MAP =
             Codec.unboundedMap(Codec.STRING, BiomeSpiritualRegion.CODEC.codec());
 
+    /** Backing index kind: exact SIMPLE by default; opt into another with -Dmysticism.spatial_index=&lt;KnnIndexKind&gt;. */
+    private static final KnnIndexKind INDEX_KIND = KnnIndexKind.fromProperty("mysticism.spatial_index", KnnIndexKind.SIMPLE);
+
     /** In-memory stores */
-    private final KnnIndex index = new SimpleKnnIndex();
+    private final KnnIndex index = INDEX_KIND.create();
     private final HashMap<String, ISpiritualRegion> regions = new HashMap<>();
 
     public KnnIndex getIndex() { return index; }
     public void touch() { this.markDirty(); }
     public Map<String, ISpiritualRegion> regionsView() { return Collections.unmodifiableMap(regions); }
 
+    /** Ids of regions in <code>world</code>'s dimension; every key starts with <code>&lt;dimId&gt;|</code>. */
+    public static KnnFilter inDimension(ServerWorld world) {
+        return KnnFilter.idPrefix(world.getRegistryKey().getValue() + "|");
+    }
+
     /**
      * Persistent codec:
      * - "embedding": map of id -> Vec384f (full snapshot of the KNN index)
      * - "regions":   map of id -> BiomeSpiritualRegion (single type for now; extend later if you add more)
+     * - "pq_codebooks": trained codebook generations (oldest first), only written when the index is a {@link PqKnnIndex}
+     * - "pq_codebook": single codebook of saves from before generations; read, never written
      */
     public static final Codec<SpatialEmbeddingIndexState> CODEC =
             RecordCodecBuilder.create(i -> i.group(
                     EMBEDDING.fieldOf("embedding").forGetter(SpatialEmbeddingIndexState::snapshotEmbeddings),
-                    BIOME_MAP.optionalFieldOf("regions", Map.of()).forGetter(SpatialEmbeddingIndexState::snapshotBiomeRegions)
+                    BIOME_MAP.optionalFieldOf("regions", Map.of()).forGetter(SpatialEmbeddingIndexState::snapshotBiomeRegions),
+                    Codecs.PQ_CODEBOOK.listOf().optionalFieldOf("pq_codebooks", List.of()).forGetter(SpatialEmbeddingIndexState::snapshotCodebooks),
+                    Codecs.PQ_CODEBOOK.optionalFieldOf("pq_codebook").forGetter(s -> Optional.empty())
             ).apply(i, SpatialEmbeddingIndexState::fromSnapshot));
 
     /** Decode path: rebuild KNN index and region map from snapshots. */
     private static SpatialEmbeddingIndexState fromSnapshot(Map<String, Vec384f> embSnap,
-                                                           Map<String, BiomeSpiritualRegion> regionSnap) {
+                                                           Map<String, BiomeSpiritualRegion> regionSnap,
+                                                           List<PqCodebook> codebooks,
+                                                           Optional<PqCodebook> legacyCodebook) {
         LOGGER.info("Loading SpatialIndex from snapshot");
         SpatialEmbeddingIndexState s = new SpatialEmbeddingIndexState();
 
-        // restore vectors
-        embSnap.forEach(s.index::upsert);
+        // restore vectors in one bulk load; with saved codebooks they get their saved codes back
+        final List<PqCodebook> generations = codebooks.isEmpty() ? legacyCodebook.map(List::of).orElse(List.of()) : codebooks;
+        boolean restored = false;
+        if (!generations.isEmpty() && s.index instanceof PqKnnIndex pq) {
+            try {
+                pq.restore(generations, embSnap);
+                restored = true;
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Ignoring saved PQ codebooks: {}", e.getMessage());
+            }
+        }
+        if (!restored) s.index.upsertAll(embSnap);
 
         // restore regions
         s.regions.putAll(regionSnap);
@@ -69,10 +99,15 @@ public class SpatialEmbeddingIndexState extends PersistentState {
     /** Encode path: stable snapshot of embeddings. */
     private Map<String, Vec384f> snapshotEmbeddings() {
         Map<String, Vec384f> out = new HashMap<>();
-        index.forEach((id, vec) -> out.put(id, vec.clone()));
+        index.forEach(out::put);
         return out;
     }
 
+    /** Encode path: PQ codebook generations, if the index has trained any. */
+    private List<PqCodebook> snapshotCodebooks() {
+        return index instanceof PqKnnIndex pq ? pq.codebooks() : List.of();
+    }
+
     /** Encode path: only write biome regions (other region types can be added later). */
     private Map<String, BiomeSpiritualRegion> snapshotBiomeRegions() {
         Map<String, BiomeSpiritualRegion> out = new HashMap<>();
@@ -143,6 +178,42 @@ public class SpatialEmbeddingIndexState extends PersistentState {
         return true;
     }
 
+    /** Drops a stale region and its embedding; returns false if <code>id</code> was unknown. */
+    public boolean remove(String id) {
+        boolean had = regions.remove(id) != null;
+        had |= index.remove(id);
+        if (had) touch();
+        return had;
+    }
+
+    /**
+     * Removes regions this server can no longer resolve (their dimension or biome was dropped with a
+     * mod or datapack) and any half-written entry that has an embedding but no region, or the reverse.
+     * A vanilla region left empty is regenerated by HorizonSeeder the next time a player is near it.
+     */
+    public int pruneMissing(MinecraftServer server) {
+        Set<String> dims = new HashSet<>();
+        for (ServerWorld world : server.getWorlds()) dims.add(world.getRegistryKey().getValue().toString());
+        Registry<Biome> biomes = server.getRegistryManager().get(RegistryKeys.BIOME);
+
+        List<String> stale = new ArrayList<>();
+        Set<String> embedded = new HashSet<>();
+        index.forEach((id, v) -> {
+            embedded.add(id);
+            if (!regions.containsKey(id)) stale.add(id);
+        });
+        for (var e : regions.entrySet()) {
+            String id = e.getKey();
+            int bar = id.indexOf('|');
+            boolean gone = !embedded.contains(id) || bar < 0 || !dims.contains(id.substring(0, bar));
+            if (!gone && e.getValue() instanceof BiomeSpiritualRegion br) gone = !biomes.containsId(br.biomeId());
+            if (gone) stale.add(id);
+        }
+        for (String id : stale) remove(id);
+        if (!stale.isEmpty()) LOGGER.info("Pruned {} stale spatial regions", stale.size());
+        return stale.size();
+    }
+
     /**
      * Optional fast pre-check used by HorizonSeeder:
      * returns true if ANY region already exists within the given vanilla region (rX,rZ)